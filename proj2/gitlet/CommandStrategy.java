@@ -1,9 +1,14 @@
 package gitlet;
 
 import gitlet.models.Repository;
+import gitlet.worktree.FileSystemMonitor;
+import gitlet.worktree.WorkingTree;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
@@ -31,6 +36,74 @@ public class CommandStrategy {
         COMMAND_STRATEGIES.put("reset", this::reset);
         COMMAND_STRATEGIES.put("rm-branch", this::rmBranch);
         COMMAND_STRATEGIES.put("merge", this::merge);
+        COMMAND_STRATEGIES.put("repack", this::repack);
+        COMMAND_STRATEGIES.put("config", this::config);
+        COMMAND_STRATEGIES.put("reindex", this::reindex);
+        COMMAND_STRATEGIES.put("fsmonitor", this::fsmonitor);
+        COMMAND_STRATEGIES.put("sparse-checkout", this::sparseCheckout);
+        COMMAND_STRATEGIES.put("migrate", this::migrate);
+    }
+
+    private void migrate(String[] args, Repository repository) {
+        checkOperandLength(args, 1);
+
+        repository.migrate();
+    }
+
+    private void sparseCheckout(String[] args, Repository repository) {
+        if (args.length < 2) {
+            messageAndExit("Incorrect operands.");
+        }
+
+        String action = args[1];
+        if (action.equals("set") && args.length > 2) {
+            repository.sparseCheckout(Arrays.asList(args).subList(2, args.length));
+        } else if (action.equals("list")) {
+            checkOperandLength(args, 2);
+            repository.sparseCheckoutList();
+        } else if (action.equals("disable")) {
+            checkOperandLength(args, 2);
+            repository.sparseCheckout(null);
+        } else {
+            messageAndExit("Incorrect operands.");
+        }
+    }
+
+    private void fsmonitor(String[] args, Repository repository) {
+        checkOperandLength(args, 2);
+
+        String action = args[1];
+        if (action.equals("start")) {
+            FileSystemMonitor.start();
+        } else if (action.equals("stop")) {
+            FileSystemMonitor.stop();
+        } else if (action.equals("run")) {
+            FileSystemMonitor.run();
+        } else {
+            messageAndExit("Incorrect operands.");
+        }
+    }
+
+    private void reindex(String[] args, Repository repository) {
+        checkOperandLength(args, 1);
+
+        repository.reindex();
+    }
+
+    private void config(String[] args, Repository repository) {
+        if (args.length < 2 || args.length > 3) {
+            messageAndExit("Incorrect operands.");
+        }
+
+        String key = args[1];
+        String value = args.length == 3 ? args[2] : null;
+        repository.config(key, value);
+    }
+
+    private void repack(String[] args, Repository repository) {
+        checkOperandLength(args, 1);
+
+        repository.repack();
     }
 
     private void merge(String[] args, Repository repository) {
@@ -59,10 +132,16 @@ public class CommandStrategy {
     }
 
     private void find(String[] args, Repository repository) {
-        checkOperandLength(args, 2);
-
-        String commitMessage = args[1];
-        repository.find(commitMessage);
+        if (args.length == 3 && args[1].equals("--word")) {
+            repository.findByWords(args[2]);
+        } else if (args.length == 3 && args[1].equals("--prefix")) {
+            repository.findByPrefix(args[2]);
+        } else {
+            checkOperandLength(args, 2);
+
+            String commitMessage = args[1];
+            repository.find(commitMessage);
+        }
     }
 
     private void globalLog(String[] args, Repository repository) {
@@ -82,10 +161,15 @@ public class CommandStrategy {
     }
 
     private void add(String[] args, Repository repository) {
-        checkOperandLength(args, 2);
+        if (args.length < 2) {
+            messageAndExit("Incorrect operands.");
+        }
 
-        String fileName = args[1];
-        repository.add(fileName);
+        List<String> paths = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            paths.add(WorkingTree.normalize(args[i]));
+        }
+        repository.add(paths);
     }
 
     private void commit(String[] args, Repository repository) {
@@ -101,14 +185,18 @@ public class CommandStrategy {
     }
 
     private void status(String[] args, Repository repository) {
-        checkOperandLength(args, 1);
-        repository.status();
+        if (args.length == 2 && args[1].equals("--ahead-behind")) {
+            repository.status(true);
+        } else {
+            checkOperandLength(args, 1);
+            repository.status();
+        }
     }
 
     private void remove(String[] args, Repository repository) {
         checkOperandLength(args, 2);
 
-        String fileName = args[1];
+        String fileName = WorkingTree.normalize(args[1]);
         repository.rm(fileName);
     }
 
@@ -119,7 +207,7 @@ public class CommandStrategy {
 
         int length = args.length;
         if (length == 3) {
-            String fileName = args[2];
+            String fileName = WorkingTree.normalize(args[2]);
             repository.checkoutFile(fileName);
         } else if (length == 4) {
             if (args[2] != null && !args[2].equals("--")) {
@@ -127,7 +215,7 @@ public class CommandStrategy {
             }
 
             String commitHash = args[1];
-            String fileName = args[3];
+            String fileName = WorkingTree.normalize(args[3]);
             repository.checkoutFileFromCommit(commitHash, fileName);
         } else if (length == 2) {
             String branchName = args[1];
@@ -2,6 +2,9 @@ package gitlet;
 
 import gitlet.models.Repository;
 import gitlet.utils.GitletException;
+import gitlet.utils.RepositoryHelper;
+
+import java.util.Set;
 
 import static gitlet.CommandStrategy.COMMAND_STRATEGIES;
 import static gitlet.utils.Utils.messageAndExit;
@@ -21,6 +24,13 @@ public class Main {
      */
     private static final CommandStrategy COMMAND_STRATEGY = new CommandStrategy();
 
+    /**
+     * The commands that also work on a repository written before blobs were identified by their content alone:
+     * init and migrate, and the ones only reading the history. The others compare the working files with the
+     * blobs of the commits, and are refused until the repository is migrated.
+     */
+    private static final Set<String> READS_UNMIGRATED = Set.of("init", "migrate", "log", "global-log", "find");
+
     /**
      * The main method that is run when the program is started.
      * It checks the user's command and executes it.
@@ -39,6 +49,8 @@ public class Main {
             messageAndExit("No command with that name exists.");
         } else if (!commandType.equals("init") && !REPOSITORY.gitletExists()) {
             messageAndExit("Not in an initialized Gitlet directory.");
+        } else if (!READS_UNMIGRATED.contains(commandType) && RepositoryHelper.needsMigration()) {
+            messageAndExit("The repository identifies files by name, run migrate first.");
         }
 
         COMMAND_STRATEGY.execute(commandType, args, REPOSITORY);
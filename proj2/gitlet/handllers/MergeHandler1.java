@@ -2,6 +2,7 @@ package gitlet.handllers;
 
 import gitlet.models.Commit;
 import gitlet.models.Repository;
+import gitlet.utils.ObjectId;
 
 /**
  * @className: Hander1
@@ -22,14 +23,12 @@ public class MergeHandler1 implements MergeHandler {
             && givenCommit.containsFile(fileName)
             && splitPointCommit.containsFile(fileName)) {
 
-            String splitFileHash = splitPointCommit.getBlob(fileName).getFileHash();
+            ObjectId splitFileHash = splitPointCommit.getBlobHash(fileName);
 
             if (headCommit.isFileEqual(fileName, splitFileHash)
                 && !givenCommit.isFileEqual(fileName, splitFileHash)) {
-                // 1. take the version of other branch
-                repository.checkoutFileFromCommit(givenCommit.getSha1Hash(), fileName);
-                // 2. add the file to the staging area
-                repository.add(fileName);
+                // take the version of other branch and add it to the staging area
+                repository.takeVersion(givenCommit, fileName);
                 handled = true;
             }
         }
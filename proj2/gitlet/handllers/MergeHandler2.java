@@ -2,6 +2,7 @@ package gitlet.handllers;
 
 import gitlet.models.Commit;
 import gitlet.models.Repository;
+import gitlet.utils.ObjectId;
 
 /**
  * @className: Handler2
@@ -22,7 +23,7 @@ public class MergeHandler2 implements MergeHandler {
             && givenCommit.containsFile(fileName)
             && splitPointCommit.containsFile(fileName)) {
 
-            String splitFileHash = splitPointCommit.getBlob(fileName).getFileHash();
+            ObjectId splitFileHash = splitPointCommit.getBlobHash(fileName);
 
             if (!headCommit.isFileEqual(fileName, splitFileHash)
                 && givenCommit.isFileEqual(fileName, splitFileHash)) {
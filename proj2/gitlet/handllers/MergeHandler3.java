@@ -2,6 +2,7 @@ package gitlet.handllers;
 
 import gitlet.models.Commit;
 import gitlet.models.Repository;
+import gitlet.utils.ObjectId;
 
 /**
  * @className: Handler3
@@ -21,7 +22,7 @@ public class MergeHandler3 implements MergeHandler {
         if (headCommit.containsFile(fileName)
             && !givenCommit.containsFile(fileName)
             && splitPointCommit.containsFile(fileName)) {
-            String splitFileHash = splitPointCommit.getBlob(fileName).getFileHash();
+            ObjectId splitFileHash = splitPointCommit.getBlobHash(fileName);
             if (headCommit.isFileEqual(fileName, splitFileHash)) {
                 repository.rm(fileName);
                 handled = true;
@@ -2,6 +2,7 @@ package gitlet.handllers;
 
 import gitlet.models.Commit;
 import gitlet.models.Repository;
+import gitlet.utils.ObjectId;
 
 /**
  * @className: Handler4
@@ -22,7 +23,7 @@ public class MergeHandler4 implements MergeHandler {
         if (!headCommit.containsFile(fileName)
             && givenCommit.containsFile(fileName)
             && splitPointCommit.containsFile(fileName)) {
-            String splitFileHash = splitPointCommit.getBlob(fileName).getFileHash();
+            ObjectId splitFileHash = splitPointCommit.getBlobHash(fileName);
             if (givenCommit.isFileEqual(fileName, splitFileHash)) {
                 // Do nothing
                 handled = true;
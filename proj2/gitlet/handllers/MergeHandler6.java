@@ -21,10 +21,8 @@ public class MergeHandler6 implements MergeHandler {
         if (!headCommit.containsFile(fileName)
             && givenCommit.containsFile(fileName)
             && !splitPointCommit.containsFile(fileName)) {
-            // 1. take the version of other branch
-            repository.checkoutFileFromCommit(givenCommit.getSha1Hash(), fileName);
-            // 2. add the file to the staging area
-            repository.add(fileName);
+            // take the version of other branch and add it to the staging area
+            repository.takeVersion(givenCommit, fileName);
             handled = true;
         }
 
@@ -1,17 +1,16 @@
 package gitlet.handllers;
 
-import gitlet.models.Blob;
 import gitlet.models.Commit;
 import gitlet.models.Repository;
-import gitlet.utils.Utils;
+import gitlet.utils.ObjectId;
+import gitlet.worktree.WorkingTree;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Objects;
-
-import static gitlet.utils.Constants.CWD;
-import static gitlet.utils.Utils.writeContents;
 
 /**
  * @className: Handler7
@@ -33,25 +32,22 @@ public class MergeHandler7 implements MergeHandler {
         if (!headCommit.containsFile(fileName) && !givenCommit.containsFile(fileName) && splitPointCommit.containsFile(fileName)) {
             handled = true;
         } else if (!headCommit.containsFile(fileName)) {
-            Blob blob = givenCommit.getBlob(fileName);
-            String givenFileHash = blob.getFileHash();
+            ObjectId givenFileHash = givenCommit.getBlobHash(fileName);
 
             if (!splitPointCommit.isFileEqual(fileName, givenFileHash)) {
                 handleConflict(fileName, headCommit, givenCommit, repository);
             }
         } else if (!givenCommit.containsFile(fileName)) {
-            Blob blob = headCommit.getBlob(fileName);
-            String headFileHash = blob.getFileHash();
+            ObjectId headFileHash = headCommit.getBlobHash(fileName);
 
             if (!splitPointCommit.isFileEqual(fileName, headFileHash)) {
                 handleConflict(fileName, headCommit, givenCommit, repository);
             }
         } else if (headCommit.containsFile(fileName) && givenCommit.containsFile(fileName)) {
 
-            Blob blob = splitPointCommit.getBlob(fileName);
-            String splitFileHash = blob.getFileHash();
+            ObjectId splitFileHash = splitPointCommit.getBlobHash(fileName);
 
-            if (headCommit.isFileEqual(fileName, givenCommit.getBlob(fileName).getFileHash())) {
+            if (headCommit.isFileEqual(fileName, givenCommit.getBlobHash(fileName))) {
                 // Do nothing
                 handled = true;
             } else if (!headCommit.isFileEqual(fileName, splitFileHash) && !givenCommit.isFileEqual(fileName, splitFileHash)) {
@@ -90,21 +86,19 @@ public class MergeHandler7 implements MergeHandler {
         //
         //}
 
-        byte[] current = "".getBytes(StandardCharsets.UTF_8);
-        byte[] given = "".getBytes(StandardCharsets.UTF_8);
-
-        if (Objects.nonNull(headCommit.getBlob(fileName))){
-            current = headCommit.getBlob(fileName).getContent().getBytes();
-        }
-
-        if (Objects.nonNull(givenCommit.getBlob(fileName))){
-            given = givenCommit.getBlob(fileName).getContent().getBytes();
+        File file = WorkingTree.prepareFile(fileName);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            out.write("<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8));
+            if (headCommit.containsFile(fileName)) {
+                headCommit.writeContent(fileName, out);
+            }
+            out.write("=======\n".getBytes(StandardCharsets.UTF_8));
+            if (givenCommit.containsFile(fileName)) {
+                givenCommit.writeContent(fileName, out);
+            }
+            out.write(">>>>>>>\n".getBytes(StandardCharsets.UTF_8));
         }
 
-        File file = Utils.join(CWD, fileName);
-        file.createNewFile();
-        writeContents(file,"<<<<<<< HEAD\n",current,"=======\n",given,">>>>>>>\n");
-
         repository.add(fileName);
 
         System.out.print("Encountered a merge conflict.");
@@ -0,0 +1,163 @@
+package gitlet.models;
+
+import gitlet.utils.Config;
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+import gitlet.utils.Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * @className: BinaryObjectCodec
+ * @description: Common layout of the binary object encodings:
+ * - 2 bytes magic "GL", 1 byte object type, 1 byte format version
+ * - the fields of the object, variable-length ones prefixed by their length as a varint
+ * Objects written before the binary format start with the java serialization magic 0xACED and
+ * are still read through java deserialization.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+abstract class BinaryObjectCodec<T extends GitletObject> implements GitletObjectCodec<T> {
+    static final int JAVA_SERIALIZATION_MAGIC = 0xaced;
+    private static final int MAGIC = 0x474c; // "GL"
+
+    private final byte type;
+    private final Class<T> objectClass;
+
+    BinaryObjectCodec(char type, Class<T> objectClass) {
+        this.type = (byte) type;
+        this.objectClass = objectClass;
+    }
+
+    protected abstract int version();
+
+    protected abstract void encodeBody(T object, DataOutputStream out) throws IOException;
+
+    protected abstract T decodeBody(String hash, int version, DataInputStream in) throws IOException;
+
+    @Override
+    public byte[] encode(T object) {
+        return encode(out -> encodeBody(object, out));
+    }
+
+    /**
+     * @return the common header followed by what BODY writes
+     */
+    protected byte[] encode(BodyWriter body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(MAGIC);
+            out.writeByte(type);
+            out.writeByte(version());
+            body.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new GitletException("Internal error encoding " + objectClass.getSimpleName() + ".");
+        }
+    }
+
+    @Override
+    public T decode(String hash, byte[] bytes) {
+        if (bytes.length >= 2 && readShort(bytes) == JAVA_SERIALIZATION_MAGIC) {
+            return Utils.deserialize(bytes, objectClass);
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            return decodeBody(hash, readHeader(hash, in), in);
+        } catch (IOException e) {
+            throw new GitletException("Object " + hash + " is corrupt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check the common header of the object HASH.
+     *
+     * @return the format version the object was written with
+     */
+    protected int readHeader(String hash, DataInputStream in) throws IOException {
+        int version;
+        if (in.readUnsignedShort() != MAGIC || in.readByte() != type
+            || (version = in.readUnsignedByte()) > version()) {
+            throw new GitletException("Object " + hash + " is not a readable "
+                + objectClass.getSimpleName() + ".");
+        }
+        return version;
+    }
+
+    protected interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static int readShort(byte[] bytes) {
+        return ((bytes[0] & 0xff) << 8) | (bytes[1] & 0xff);
+    }
+
+    static void writeVarInt(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarInt(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        writeVarInt(out, value.length);
+        out.write(value);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[(int) readVarInt(in)];
+        in.readFully(value);
+        return value;
+    }
+
+    /**
+     * Write VALUE compressed with deflate at the level of core.compression.
+     */
+    static void writeDeflated(DataOutputStream out, byte[] value) throws IOException {
+        Deflater deflater = new Deflater(Config.getInt(Config.COMPRESSION));
+        DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater);
+        deflated.write(value);
+        deflated.finish();
+        deflater.end();
+    }
+
+    static void writeId(DataOutputStream out, ObjectId id) throws IOException {
+        out.write(id.toBytes());
+    }
+
+    static ObjectId readId(DataInputStream in) throws IOException {
+        byte[] id = new byte[ObjectId.LENGTH];
+        in.readFully(id);
+        return ObjectId.fromBytes(id);
+    }
+}
@@ -1,46 +1,283 @@
 package gitlet.models;
 
+import gitlet.storage.Chunker;
+import gitlet.utils.Config;
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
 import gitlet.utils.RepositoryHelper;
 import gitlet.utils.Utils;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @className: Blob
  * @description:
  * Blob is a file that is stored in the .gitlet/objects directory.
- * It is uniquely identified by the sha1 hash of its contents.
+ * It is uniquely identified by the sha1 hash of its contents alone, prefixed with "blob <length>\0": the name
+ * of the file lives in the trees, so the same content under several names or after a rename is stored once.
+ * Blobs written before, by repositories not migrated yet, were identified by their file name as well.
  * The contents of a blob are the contents of the file it represents.
+ * Contents are handled as raw bytes and streamed between the working directory and the object store,
+ * a blob read back from the store only loads its content when it is asked for.
  * @author: Wenjie FU
  * @date: 25/01/2024
  **/
 public class Blob extends GitletObject {
-    private final String fileName;
+    private static final BlobCodec BLOB_CODEC = new BlobCodec();
+    public static final GitletObjectCodec<Blob> CODEC = BLOB_CODEC;
+    private static final long serialVersionUID = 707381229619849349L;
+    private static final int MAX_DELTA_DEPTH = 255;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Hash of the content, the blob hash itself for blobs identified by their content alone; blobs identified
+     * by their file name as well kept sha1(fileName, content) here
+     */
     private final String fileHash;
-    private final String content;
+    /**
+     * Content of the blobs written with java serialization, newer blobs keep their content in BYTES
+     */
+    private String content;
+    private transient String hash;
+    private transient byte[] bytes;
+    /**
+     * Number of deltas to resolve to read this blob, 0 when it is stored in full
+     */
+    private transient int deltaDepth;
+
+    public Blob(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Utils.sha1(header(bytes.length), bytes);
+        this.fileHash = hash;
+    }
+
+    Blob(String hash, String fileHash, int deltaDepth) {
+        this.hash = hash;
+        this.fileHash = fileHash;
+        this.deltaDepth = deltaDepth;
+    }
+
+    private static String header(long length) {
+        return "blob " + length + "\0";
+    }
+
+    /**
+     * Hash and store FILE, the working version of FILENAME, reading it only once.
+     * FILENAME only names the file in error messages.
+     * - files smaller than core.chunkThreshold are read in memory, and stored as a delta against
+     *   PREVIOUSHASH when it pays off
+     * - larger files are hashed while they are streamed into the object store as chunks, so their size
+     *   is not bounded by the heap
+     *
+     * @param previousHash the blob hash of the previous version of the file, or null if there is none
+     */
+    public static Blob store(String fileName, File file, String previousHash) {
+        if (file.length() < Config.getInt(Config.CHUNK_THRESHOLD)) {
+            Blob blob = new Blob(Utils.readContents(file));
+            blob.persist(previousHash);
+            return blob;
+        }
 
-    public Blob(String fileName, String content) {
-        this.fileName = fileName;
-        this.content = content;
-        this.fileHash = Utils.sha1(fileName, content);
+        List<ObjectId> chunkIds = new ArrayList<>();
+        try (HashingInputStream in = new HashingInputStream(fileName, file.length(), open(file))) {
+            Chunker chunker = new Chunker(in);
+            for (byte[] chunk = chunker.next(); chunk != null; chunk = chunker.next()) {
+                chunkIds.add(ObjectId.fromHex(new Chunk(chunk).persist()));
+            }
+
+            Blob blob = in.toBlob();
+            RepositoryHelper.persistObject(blob.hash, BLOB_CODEC.encodeChunked(blob, in.length, chunkIds));
+            return blob;
+        } catch (IOException e) {
+            throw new GitletException("Cannot store " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hash FILE, the working version of FILENAME, without storing it, in constant memory.
+     *
+     * @return a blob that only knows its hashes
+     */
+    public static Blob hash(String fileName, File file) {
+        try (HashingInputStream in = new HashingInputStream(fileName, file.length(), open(file))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) >= 0) {
+                continue;
+            }
+            return in.toBlob();
+        } catch (IOException e) {
+            throw new GitletException("Cannot read " + fileName + ": " + e.getMessage());
+        }
     }
 
-    public String getFileName() {
-        return fileName;
+    private static InputStream open(File file) throws IOException {
+        return Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ));
     }
 
     public String getFileHash() {
         return fileHash;
     }
 
-    public String getContent() {
-        return content;
+    /**
+     * @return the whole content of this blob, read from the object store on every call when the blob
+     * was loaded from it, so the blobs kept in the object cache never hold their content
+     */
+    public byte[] getContent() {
+        if (bytes != null) {
+            return bytes;
+        }
+        if (content != null) {
+            return content.getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RepositoryHelper.writeBlobContent(hash, out);
+        return out.toByteArray();
     }
 
     @Override
     protected String sha1Hash() {
-        return Utils.sha1(fileName, content, fileHash);
+        if (hash == null) {
+            byte[] content = getContent();
+            hash = Utils.sha1(header(content.length), content);
+        }
+        return hash;
+    }
+
+    public String getHash() {
+        return sha1Hash();
+    }
+
+    @Override
+    public byte[] encode() {
+        return CODEC.encode(this);
+    }
+
+    public int getDeltaDepth() {
+        return deltaDepth;
     }
 
     public void persist() {
         RepositoryHelper.persistObject(this.sha1Hash(), this);
     }
+
+    /**
+     * Persist this blob as a delta against PREVIOUSHASH, an earlier version of the same file,
+     * unless that would make the delta chain deeper than core.deltaDepth or save too little space.
+     *
+     * @param previousHash the blob hash of the previous version of the file, or null if there is none
+     */
+    public void persist(String previousHash) {
+        String hash = this.sha1Hash();
+        if (previousHash == null || previousHash.equals(hash)) {
+            persist();
+            return;
+        }
+
+        // the delta is only computed when the blob is not already stored
+        RepositoryHelper.persistObject(hash, () -> {
+            if (Blob.isChunked(previousHash, RepositoryHelper.readObject(previousHash))) {
+                return encode();
+            }
+            Blob previous = RepositoryHelper.getBlob(previousHash);
+            byte[] encoded = encodeDelta(previous, previous.deltaDepth + 1);
+            return encoded == null ? encode() : encoded;
+        });
+    }
+
+    /**
+     * @return this blob encoded as a delta against BASE at chain depth DEPTH,
+     * or null when the depth exceeds core.deltaDepth or the delta is not worth it
+     */
+    public byte[] encodeDelta(Blob base, int depth) {
+        if (depth > Math.min(Config.getInt(Config.DELTA_DEPTH), MAX_DELTA_DEPTH)) {
+            return null;
+        }
+        return BLOB_CODEC.encodeDelta(this, ObjectId.fromHex(base.sha1Hash()), base.getContent(), depth);
+    }
+
+    /**
+     * @return whether the blob BLOBHASH, stored as STORED, is a list of chunks
+     */
+    public static boolean isChunked(String blobHash, byte[] stored) {
+        return BLOB_CODEC.isChunked(blobHash, stored);
+    }
+
+    /**
+     * Write the content of the blob BLOBHASH, read from its stored form STORED, to FILE.
+     * The content is inflated straight into the file without being decoded as a String.
+     */
+    public static void restore(String blobHash, InputStream stored, File file) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            writeContent(blobHash, stored, out);
+        } catch (IOException e) {
+            throw new GitletException("Cannot restore " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the content of the blob BLOBHASH, read from its stored form STORED, to OUT.
+     */
+    public static void writeContent(String blobHash, InputStream stored, OutputStream out) {
+        try (InputStream in = stored) {
+            BLOB_CODEC.decodeContent(blobHash, in, out);
+        } catch (IOException e) {
+            throw new GitletException("Cannot read blob " + blobHash + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the blob hash of the bytes read through it, which must be EXPECTEDLENGTH bytes long
+     * since the length comes first in the hash.
+     */
+    private static class HashingInputStream extends FilterInputStream {
+        private final String fileName;
+        private final long expectedLength;
+        private final MessageDigest blobDigest = Utils.sha1Digest();
+        private long length;
+
+        HashingInputStream(String fileName, long expectedLength, InputStream in) {
+            super(in);
+            this.fileName = fileName;
+            this.expectedLength = expectedLength;
+            blobDigest.update(header(expectedLength).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = in.read(buffer, offset, count);
+            if (read > 0) {
+                blobDigest.update(buffer, offset, read);
+                length += read;
+            }
+            return read;
+        }
+
+        Blob toBlob() {
+            if (length != expectedLength) {
+                throw new GitletException(fileName + " changed while it was read.");
+            }
+            String hash = Utils.toHex(blobDigest.digest());
+            return new Blob(hash, hash, 0);
+        }
+    }
 }
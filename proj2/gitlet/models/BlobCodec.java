@@ -0,0 +1,202 @@
+package gitlet.models;
+
+import gitlet.storage.Delta;
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+import gitlet.utils.RepositoryHelper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @className: BlobCodec
+ * @description: Version 4 layout of a blob, after the common header:
+ * - storage kind (1 byte), then either
+ *   FULL    : content length (varint), content compressed with deflate up to the end of the object
+ *   DELTA   : base blob hash as 20 raw bytes, chain depth (1 byte),
+ *             a {@link Delta} against the base content compressed with deflate up to the end of the object
+ *   CHUNKED : content length (varint), chunk count (varint), then the hash of each {@link Chunk}
+ *             as 20 raw bytes, in file order
+ * Versions 1 to 3 started with the file name (varint length + utf-8) and the file hash as 20 raw bytes,
+ * blobs were identified by their file name as well. Version 3 then had the same layout as version 4,
+ * version 2 had no storage kind and was always FULL, version 1 stored the content uncompressed
+ * as (varint length + utf-8).
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+class BlobCodec extends BinaryObjectCodec<Blob> {
+    private static final int VERSION = 4;
+    private static final int FULL = 0;
+    private static final int DELTA = 1;
+    private static final int CHUNKED = 2;
+
+    BlobCodec() {
+        super('b', Blob.class);
+    }
+
+    @Override
+    protected int version() {
+        return VERSION;
+    }
+
+    @Override
+    protected void encodeBody(Blob blob, DataOutputStream out) throws IOException {
+        out.writeByte(FULL);
+
+        byte[] content = blob.getContent();
+        writeVarInt(out, content.length);
+        writeDeflated(out, content);
+    }
+
+    /**
+     * Encode BLOB as a delta against the blob BASEID whose content is BASECONTENT, at chain depth DEPTH.
+     *
+     * @return the encoding, or null when the delta would not save at least half of the content
+     */
+    byte[] encodeDelta(Blob blob, ObjectId baseId, byte[] baseContent, int depth) {
+        byte[] content = blob.getContent();
+        byte[] delta = Delta.create(baseContent, content);
+        if (delta.length >= content.length / 2) {
+            return null;
+        }
+
+        return encode(out -> {
+            out.writeByte(DELTA);
+            writeId(out, baseId);
+            out.writeByte(depth);
+            writeDeflated(out, delta);
+        });
+    }
+
+    /**
+     * Encode BLOB as the list of the chunks, already stored, that make up its content of LENGTH bytes.
+     */
+    byte[] encodeChunked(Blob blob, long length, List<ObjectId> chunkIds) {
+        return encode(out -> {
+            out.writeByte(CHUNKED);
+            writeVarInt(out, length);
+            writeVarInt(out, chunkIds.size());
+            for (ObjectId chunkId : chunkIds) {
+                writeId(out, chunkId);
+            }
+        });
+    }
+
+    /**
+     * @return whether the blob stored as STORED is a list of chunks
+     */
+    boolean isChunked(String hash, byte[] stored) {
+        if (readShort(stored) == JAVA_SERIALIZATION_MAGIC) {
+            return false;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(stored));
+            int version = readHeader(hash, in);
+            readFileHash(hash, version, in);
+            return version >= 3 && in.readUnsignedByte() == CHUNKED;
+        } catch (IOException e) {
+            throw new GitletException("Object " + hash + " is corrupt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Only the header of the blob is decoded, its content is streamed from the object store when it is read.
+     */
+    @Override
+    protected Blob decodeBody(String hash, int version, DataInputStream in) throws IOException {
+        String fileHash = readFileHash(hash, version, in);
+
+        int depth = 0;
+        if (version >= 3 && in.readUnsignedByte() == DELTA) {
+            readId(in);
+            depth = in.readUnsignedByte();
+        }
+        return new Blob(hash, fileHash, depth);
+    }
+
+    /**
+     * Copy the content of the blob HASH from its stored form STORED into OUT, inflating it on the way,
+     * so the content is never held in memory as a whole. Deltas are the exception, they are resolved
+     * against their base in memory.
+     */
+    void decodeContent(String hash, InputStream stored, OutputStream out) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(stored);
+        buffered.mark(2);
+        byte[] magic = {(byte) buffered.read(), (byte) buffered.read()};
+        buffered.reset();
+
+        if (readShort(magic) == JAVA_SERIALIZATION_MAGIC) {
+            Blob blob = decode(hash, buffered.readAllBytes());
+            out.write(blob.getContent());
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(buffered);
+        int version = readHeader(hash, in);
+        readFileHash(hash, version, in);
+
+        int kind = version >= 3 ? in.readUnsignedByte() : FULL;
+        if (kind == DELTA) {
+            ObjectId baseId = readId(in);
+            in.readUnsignedByte();
+            out.write(Delta.apply(contentOf(baseId), new InflaterInputStream(in).readAllBytes()));
+            return;
+        } else if (kind == CHUNKED) {
+            readVarInt(in);
+            for (ObjectId chunkId : readChunkIds(in)) {
+                RepositoryHelper.writeChunkContent(chunkId.toHex(), out);
+            }
+            return;
+        }
+
+        long length = readVarInt(in);
+        InputStream content = version == 1 ? in : new InflaterInputStream(in);
+        byte[] buffer = new byte[8192];
+        while (length > 0) {
+            int read = content.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new IOException("truncated blob");
+            }
+            out.write(buffer, 0, read);
+            length -= read;
+        }
+    }
+
+    /**
+     * Skip the file name of a blob identified by its file name as well.
+     *
+     * @return the hash of the content, the blob hash HASH itself from version 4 on
+     */
+    private static String readFileHash(String hash, int version, DataInputStream in) throws IOException {
+        if (version >= 4) {
+            return hash;
+        }
+        readString(in);
+        return readId(in).toHex();
+    }
+
+    private static List<ObjectId> readChunkIds(DataInputStream in) throws IOException {
+        int count = (int) readVarInt(in);
+        List<ObjectId> chunkIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunkIds.add(readId(in));
+        }
+        return chunkIds;
+    }
+
+    private static byte[] contentOf(ObjectId blobId) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        RepositoryHelper.writeBlobContent(blobId.toHex(), content);
+        return content.toByteArray();
+    }
+}
@@ -0,0 +1,179 @@
+package gitlet.models;
+
+import gitlet.storage.CommitCatalog;
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+import gitlet.utils.RepositoryHelper;
+import gitlet.utils.Trace;
+import gitlet.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static gitlet.utils.Constants.*;
+
+/**
+ * @className: BlobMigration
+ * @description: Rewrites the history of a repository whose blobs were identified by their file name as well,
+ * so that they are identified by their content alone. Every commit of the catalog is written again, the oldest
+ * first, with the content of its files stored as new blobs, deltas against the version of the first parent,
+ * and with its parents replaced by their rewritten commits. Every commit gets a new id, the initial commit
+ * included: commits are hashed over their tree since trees were introduced, so even a commit without any file
+ * hashes differently from its old version. The old objects stay in the store.
+ * Nothing is switched over before every new object is stored: the catalog is then written again in a temporary
+ * directory and moved in place, the commit graph and the bitmaps of the old commits are dropped to be rebuilt
+ * on demand, the branches are moved and the repository format is written last.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+class BlobMigration {
+    private final Map<ObjectId, ObjectId> blobs = new HashMap<>();
+    private final Map<String, ObjectId> commits = new HashMap<>();
+    private final List<Commit> rewritten = new ArrayList<>();
+
+    /**
+     * @return the number of commits rewritten
+     */
+    int run() {
+        long start = System.nanoTime();
+        LinkedList<String> catalogHashes = new LinkedList<>();
+        RepositoryHelper.visitCommitsNewestFirst(entry -> {
+            catalogHashes.addFirst(entry.getHash());
+            return true;
+        });
+        catalogHashes.forEach(this::rewriteCommit);
+
+        Map<String, ObjectId> branchTips = new HashMap<>();
+        for (String branchName : Utils.plainFilenamesIn(REFS_HEADS_DIR)) {
+            String tipHash = Utils.readContentsAsString(Utils.join(REFS_HEADS_DIR, branchName));
+            branchTips.put(branchName, rewriteCommit(tipHash));
+        }
+
+        replaceCatalog();
+        COMMIT_GRAPH_FILE.delete();
+        BITMAPS_FILE.delete();
+        RepositoryHelper.reindex();
+        branchTips.forEach((branchName, tipHash) -> new Branch(branchName, tipHash.toHex()).persist());
+        RepositoryHelper.writeRepositoryFormat();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Trace.register("migrate", () -> String.format("%d commits, %d blobs rewritten in %.2fs",
+            commits.size(), blobs.size(), seconds));
+        return commits.size();
+    }
+
+    /**
+     * Rewrite the commit OLDHASH after any of its ancestors not rewritten yet.
+     *
+     * @return the id of the rewritten commit
+     */
+    private ObjectId rewriteCommit(String oldHash) {
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(oldHash);
+        while (!pending.isEmpty()) {
+            String next = pending.peek();
+            if (commits.containsKey(next)) {
+                pending.pop();
+                continue;
+            }
+
+            Commit commit = RepositoryHelper.getCommit(next);
+            List<String> missingParents = commit.getParentHashes().stream()
+                .filter(parentHash -> !commits.containsKey(parentHash))
+                .collect(Collectors.toList());
+            if (missingParents.isEmpty()) {
+                pending.pop();
+                commits.put(next, rewrite(commit));
+            } else {
+                missingParents.forEach(pending::push);
+            }
+        }
+        return commits.get(oldHash);
+    }
+
+    private ObjectId rewrite(Commit commit) {
+        Commit firstParent = commit.getFirstParentCommit();
+        Map<String, ObjectId> files = new HashMap<>();
+        commit.getFileNameToBlobHash().forEach((fileName, blobHash) -> {
+            ObjectId previousHash = firstParent == null ? null : blobs.get(firstParent.getBlobHash(fileName));
+            files.put(fileName, rewriteBlob(fileName, blobHash, previousHash));
+        });
+
+        Commit migrated = new Commit(null, commit.getMessage(), commit.getTimeStamp(), null, Tree.write(null, files),
+            commits.get(commit.getFirstParentHash()), commits.get(commit.getSecondParentHash()));
+        migrated.persistObject();
+        rewritten.add(migrated);
+        return migrated.getId();
+    }
+
+    /**
+     * Store the content of the blob OLDID, the version of FILENAME, as a blob identified by its content.
+     * Large blobs are streamed through a temporary file and chunked again, their chunks are already stored.
+     *
+     * @param previousId the rewritten blob of the previous version of FILENAME, or null if there is none
+     */
+    private ObjectId rewriteBlob(String fileName, ObjectId oldId, ObjectId previousId) {
+        ObjectId newId = blobs.get(oldId);
+        if (newId != null) {
+            return newId;
+        }
+
+        String oldHash = oldId.toHex();
+        String previousHash = previousId == null ? null : previousId.toHex();
+        Blob blob;
+        if (Blob.isChunked(oldHash, RepositoryHelper.readObject(oldHash))) {
+            File content = createTempFile();
+            try {
+                RepositoryHelper.restoreBlob(oldHash, content);
+                blob = Blob.store(fileName, content, previousHash);
+            } finally {
+                content.delete();
+            }
+        } else {
+            blob = new Blob(RepositoryHelper.getBlob(oldHash).getContent());
+            blob.persist(previousHash);
+        }
+        newId = ObjectId.fromHex(blob.getHash());
+        blobs.put(oldId, newId);
+        return newId;
+    }
+
+    /**
+     * Write the catalog of the rewritten commits next to the old one, then move it in place.
+     */
+    private void replaceCatalog() {
+        File catalogDir = Utils.join(GITLET_DIR, "migrate-logs");
+        catalogDir.mkdir();
+        CommitCatalog catalog = new CommitCatalog(catalogDir);
+        rewritten.forEach(commit -> catalog.add(commit.getSha1Hash(), commit.getTimeStamp(),
+            commit.getFirstParentHash(), commit.getSecondParentHash(), commit.getMessage()));
+
+        try {
+            for (String name : Utils.plainFilenamesIn(catalogDir)) {
+                Files.move(Utils.join(catalogDir, name).toPath(), Utils.join(LOGS_DIR, name).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot replace the commit catalog: " + e.getMessage());
+        }
+        catalogDir.delete();
+    }
+
+    private static File createTempFile() {
+        try {
+            return File.createTempFile("migrate-", ".tmp", GITLET_DIR);
+        } catch (IOException e) {
+            throw new GitletException("Cannot create a temporary file: " + e.getMessage());
+        }
+    }
+}
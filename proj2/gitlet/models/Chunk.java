@@ -0,0 +1,65 @@
+package gitlet.models;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.RepositoryHelper;
+import gitlet.utils.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @className: Chunk
+ * @description: A piece of a large file, cut by {@link gitlet.storage.Chunker}. Chunks are identified by
+ * the sha1 hash of their bytes only, so the same piece of content is stored once no matter how many
+ * files or versions of a file contain it.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class Chunk extends GitletObject {
+    private static final ChunkCodec CHUNK_CODEC = new ChunkCodec();
+    public static final GitletObjectCodec<Chunk> CODEC = CHUNK_CODEC;
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] data;
+
+    public Chunk(byte[] data) {
+        this.data = data;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    protected String sha1Hash() {
+        return Utils.sha1(data);
+    }
+
+    @Override
+    public byte[] encode() {
+        return CODEC.encode(this);
+    }
+
+    /**
+     * Store this chunk unless an identical one is already stored.
+     *
+     * @return the hash of this chunk
+     */
+    public String persist() {
+        String hash = sha1Hash();
+        RepositoryHelper.persistObject(hash, this);
+        return hash;
+    }
+
+    /**
+     * Write the bytes of the chunk CHUNKHASH, read from its stored form STORED, to OUT.
+     */
+    public static void writeContent(String chunkHash, InputStream stored, OutputStream out) {
+        try (InputStream in = stored) {
+            CHUNK_CODEC.decodeContent(chunkHash, in, out);
+        } catch (IOException e) {
+            throw new GitletException("Cannot read chunk " + chunkHash + ": " + e.getMessage());
+        }
+    }
+}
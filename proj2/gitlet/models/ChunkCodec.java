@@ -0,0 +1,47 @@
+package gitlet.models;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @className: ChunkCodec
+ * @description: Version 1 layout of a chunk, after the common header:
+ * - the chunk bytes compressed with deflate, up to the end of the object
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+class ChunkCodec extends BinaryObjectCodec<Chunk> {
+    private static final int VERSION = 1;
+
+    ChunkCodec() {
+        super('k', Chunk.class);
+    }
+
+    @Override
+    protected int version() {
+        return VERSION;
+    }
+
+    @Override
+    protected void encodeBody(Chunk chunk, DataOutputStream out) throws IOException {
+        writeDeflated(out, chunk.getData());
+    }
+
+    @Override
+    protected Chunk decodeBody(String hash, int version, DataInputStream in) throws IOException {
+        return new Chunk(new InflaterInputStream(in).readAllBytes());
+    }
+
+    /**
+     * Inflate the bytes of the chunk HASH from its stored form STORED into OUT.
+     */
+    void decodeContent(String hash, InputStream stored, OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(stored);
+        readHeader(hash, in);
+        new InflaterInputStream(in).transferTo(out);
+    }
+}
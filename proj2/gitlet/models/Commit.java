@@ -1,41 +1,57 @@
 package gitlet.models;
 
 
+import gitlet.utils.ObjectId;
 import gitlet.utils.RepositoryHelper;
 import gitlet.utils.Utils;
+import gitlet.worktree.WorkingTree;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static gitlet.utils.Constants.CWD;
-import static gitlet.utils.Constants.LOGS_DIR;
-import static gitlet.utils.Utils.join;
-import static gitlet.utils.Utils.writeContents;
-
 public class Commit extends GitletObject {
+    public static final GitletObjectCodec<Commit> CODEC = new CommitCodec();
+    private static final long serialVersionUID = 8858343196502466044L;
 
     /**
-     * The message of this Commit.
+     * The message of this Commit. Not final, like the time stamp, only so that readObject can set it.
      */
-    private final String message;
+    private String message;
     /**
      * Time at which a commit is created. Assigned by the constructor
      */
-    private final Date timeStamp;
-    private String sha1Hash = "";
+    private Date timeStamp;
+    /**
+     * The id of this commit, null until it is persisted
+     */
+    private ObjectId sha1Hash;
     /**
-     * A map that links file name to its blob
+     * A map that links file name to its blob. Commits written before trees were introduced keep their files
+     * here, newer commits only fill it in when every file is asked for, from their tree
      */
-    private HashMap<String, String> fileNameToBlobHash;
+    private HashMap<String, ObjectId> fileNameToBlobHash;
     /**
-     * * The parent commit of a commit object
+     * The root tree of the files of this commit, null for the commits that predate trees until it is needed
      */
-    private String firstParentHash = "";
-    private String secondParentHash = "";
+    private ObjectId treeHash;
+    /**
+     * * The parent commit of a commit object, null for the initial commit
+     */
+    private ObjectId firstParentHash;
+    /**
+     * The tip of the merged branch for a merge commit, null otherwise
+     */
+    private ObjectId secondParentHash;
 
     public Commit(String message, Date timeStamp) {
         this.message = message;
@@ -43,12 +59,33 @@ public class Commit extends GitletObject {
         this.fileNameToBlobHash = new HashMap<>();
     }
 
-    public String getSha1Hash() {
+    Commit(ObjectId sha1Hash, String message, Date timeStamp, HashMap<String, ObjectId> fileNameToBlobHash,
+           ObjectId treeHash, ObjectId firstParentHash, ObjectId secondParentHash) {
+        this.sha1Hash = sha1Hash;
+        this.message = message;
+        this.timeStamp = timeStamp;
+        this.fileNameToBlobHash = fileNameToBlobHash;
+        this.treeHash = treeHash;
+        this.firstParentHash = firstParentHash;
+        this.secondParentHash = secondParentHash;
+    }
+
+    public ObjectId getId() {
         return sha1Hash;
     }
 
+    /**
+     * @return the id of this commit in hexadecimal, empty until it is persisted
+     */
+    public String getSha1Hash() {
+        return toHex(sha1Hash);
+    }
+
+    /**
+     * @return the id of the first parent in hexadecimal, empty for the initial commit
+     */
     public String getFirstParentHash() {
-        return firstParentHash;
+        return toHex(firstParentHash);
     }
 
     public String getMessage() {
@@ -59,41 +96,82 @@ public class Commit extends GitletObject {
         return timeStamp;
     }
 
-    public HashMap<String, String> getFileNameToBlobHash() {
+    /**
+     * @return every file of this commit with its blob hash, read from the whole tree on the first call
+     */
+    public HashMap<String, ObjectId> getFileNameToBlobHash() {
+        if (fileNameToBlobHash == null) {
+            HashMap<String, ObjectId> files = new HashMap<>();
+            RepositoryHelper.getTree(treeHash.toHex()).flatten("", files);
+            fileNameToBlobHash = files;
+        }
         return fileNameToBlobHash;
     }
 
+    /**
+     * @return the hash of the root tree, writing the trees of a commit that predates them on the first call
+     */
+    public ObjectId getTreeHash() {
+        if (treeHash == null) {
+            treeHash = Tree.write(null, fileNameToBlobHash);
+        }
+        return treeHash;
+    }
+
+    /**
+     * @return the blob hash of FILENAME in this commit, or null if it does not contain it
+     */
+    public ObjectId getBlobHash(String fileName) {
+        if (fileNameToBlobHash != null) {
+            return fileNameToBlobHash.get(fileName);
+        }
+        return RepositoryHelper.getTree(treeHash.toHex()).findBlob(fileName);
+    }
+
     public Commit buildNext(String commitMessage) {
         Commit commit = new Commit(commitMessage, new Date());
-        commit.fileNameToBlobHash = fileNameToBlobHash;
+        // the child starts from the tree of its parent, only the directories it changes are written again
+        commit.fileNameToBlobHash = null;
+        commit.treeHash = getTreeHash();
         commit.firstParentHash = this.sha1Hash;
         return commit;
     }
 
     public void persist() {
-        sha1Hash = this.sha1Hash();
-        RepositoryHelper.persistObject(sha1Hash, this);
-        // write the commit hash to the logs directory, concatenate the commit hash to the end of the file
-        writeContents(join(LOGS_DIR, sha1Hash), sha1Hash);
+        persistObject();
+        RepositoryHelper.addToCommitGraph(this);
+        // append the commit to the catalog read by global-log and find
+        RepositoryHelper.addToCommitCatalog(this);
+    }
+
+    /**
+     * Store this commit without recording it in the commit graph and the catalog.
+     */
+    void persistObject() {
+        sha1Hash = ObjectId.fromHex(this.sha1Hash());
+        RepositoryHelper.persistObject(sha1Hash.toHex(), this);
+    }
+
+    @Override
+    public byte[] encode() {
+        return CODEC.encode(this);
     }
 
     @Override
     protected String sha1Hash() {
-        return Utils.sha1(message, timeStamp.toString(), Utils.serialize(fileNameToBlobHash), firstParentHash);
+        return Utils.sha1(message, timeStamp.toString(), getTreeHash().toHex(), toHex(firstParentHash));
     }
 
+    /**
+     * Apply the staged and removed files to the tree of this commit.
+     */
     public void updateIndex(StagingArea stagingArea) {
-        stagingArea.getStagedBlobs()
-            .forEach((fileName, blobHash) -> {
-                if (fileNameToBlobHash.containsKey(fileName)) {
-                    fileNameToBlobHash.replace(fileName, blobHash);
-                } else {
-                    fileNameToBlobHash.put(fileName, blobHash);
-                }
-            });
-
-        stagingArea.getRemovedBlobs()
-            .forEach(fileNameToBlobHash::remove);
+        Map<String, ObjectId> changes = new HashMap<>(stagingArea.getStagedBlobs());
+        stagingArea.getRemovedBlobs().forEach(fileName -> changes.put(fileName, null));
+        if (!changes.isEmpty()) {
+            treeHash = Tree.write(getTreeHash(), changes);
+            fileNameToBlobHash = null;
+        }
     }
 
     public Set<Commit> getParents() {
@@ -102,46 +180,59 @@ public class Commit extends GitletObject {
             .collect(Collectors.toSet());
     }
 
+    /**
+     * @return the hashes of the parents of this commit, the first parent first
+     */
+    public List<String> getParentHashes() {
+        List<String> parentHashes = new ArrayList<>(2);
+        getParentIds().forEach(parentId -> parentHashes.add(parentId.toHex()));
+        return parentHashes;
+    }
+
+    /**
+     * @return the ids of the parents of this commit, the first parent first
+     */
+    List<ObjectId> getParentIds() {
+        List<ObjectId> parentIds = new ArrayList<>(2);
+        if (!isInitialCommit()) {
+            parentIds.add(firstParentHash);
+        }
+        if (isMergeCommit()) {
+            parentIds.add(secondParentHash);
+        }
+        return parentIds;
+    }
+
     public Commit getFirstParentCommit() {
-        return isInitialCommit() ? null : RepositoryHelper.getCommit(firstParentHash);
+        return isInitialCommit() ? null : RepositoryHelper.getCommit(firstParentHash.toHex());
     }
 
     private Commit getSecondParentCommit() {
-        return secondParentHash.isEmpty() ? null : RepositoryHelper.getCommit(secondParentHash);
+        return isMergeCommit() ? RepositoryHelper.getCommit(secondParentHash.toHex()) : null;
     }
 
     public boolean isInitialCommit() {
-        return firstParentHash.isEmpty();
+        return firstParentHash == null;
     }
 
     public boolean containsFile(String fileName) {
-        return fileNameToBlobHash.containsKey(fileName);
-    }
-
-    public boolean isFileInRepoEqual(String fileName) {
-        if (!fileNameToBlobHash.containsKey(fileName)) {
-            return false;
-        }
-
-        String blobHash = fileNameToBlobHash.get(fileName);
-        Blob blob = RepositoryHelper.getBlob(blobHash);
-        String hash = Utils.sha1(fileName, Utils.readContentsAsString(Utils.join(CWD, fileName)));
-        return blob.getFileHash().equals(hash);
+        return getBlobHash(fileName) != null;
     }
 
-    public boolean isFileEqual(String fileName, String fileHash) {
-        if (!fileNameToBlobHash.containsKey(fileName)) {
-            return false;
-        }
-
-        String blobHash = fileNameToBlobHash.get(fileName);
-        Blob blob = RepositoryHelper.getBlob(blobHash);
-        return blob.getFileHash().equals(fileHash);
+    /**
+     * @return whether FILENAME has the content of the blob BLOBHASH in this commit; blobs are identified
+     * by their content alone, so no blob is read
+     */
+    public boolean isFileEqual(String fileName, ObjectId blobHash) {
+        return blobHash != null && blobHash.equals(getBlobHash(fileName));
     }
 
+    /**
+     * Leaves the files out, a commit read in the legacy format only knows its tree hash once its tree is written
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(message, timeStamp, fileNameToBlobHash, firstParentHash);
+        return Objects.hash(message, timeStamp, firstParentHash);
     }
 
     @Override
@@ -157,36 +248,84 @@ public class Commit extends GitletObject {
         return
             Objects.equals(message, commit.message)
                 && Objects.equals(timeStamp, commit.timeStamp)
-                && Objects.equals(fileNameToBlobHash, commit.fileNameToBlobHash)
-                && Objects.equals(firstParentHash, commit.firstParentHash);
+                && Objects.equals(firstParentHash, commit.firstParentHash)
+                && hasSameFiles(commit);
+    }
+
+    /**
+     * Compares the tree hashes when both commits have one, the file maps otherwise; no tree is written.
+     */
+    private boolean hasSameFiles(Commit commit) {
+        if (treeHash != null && commit.treeHash != null) {
+            return treeHash.equals(commit.treeHash);
+        }
+        return getFileNameToBlobHash().equals(commit.getFileNameToBlobHash());
     }
 
     public boolean isMergeCommit() {
-        return !secondParentHash.isEmpty();
+        return secondParentHash != null;
     }
 
+    /**
+     * @return the id of the second parent in hexadecimal, empty unless this is a merge commit
+     */
     public String getSecondParentHash() {
-        return secondParentHash;
+        return toHex(secondParentHash);
     }
 
-    public void setSecondParentHash(String secondParentHash) {
+    public void setSecondParentHash(ObjectId secondParentHash) {
         this.secondParentHash = secondParentHash;
     }
 
-    public void restoreCommit() {
-        this.getAllFiles()
-            .forEach(fileName -> {
-                Blob blob = this.getBlob(fileName);
-                writeContents(join(CWD, fileName), blob.getContent());
-            });
+    /**
+     * Overwrite the file in the working directory with its version in this commit.
+     */
+    public void restoreFile(String fileName) {
+        RepositoryHelper.restoreBlob(getBlobHash(fileName).toHex(), WorkingTree.prepareFile(fileName));
+    }
+
+    /**
+     * Stream the content of the file in this commit to OUT.
+     */
+    public void writeContent(String fileName, OutputStream out) {
+        RepositoryHelper.writeBlobContent(getBlobHash(fileName).toHex(), out);
     }
 
     public Set<String> getAllFiles() {
-        return this.fileNameToBlobHash.keySet();
+        return getFileNameToBlobHash().keySet();
     }
 
     public Blob getBlob(String fileName) {
-        String blobHash = fileNameToBlobHash.get(fileName);
-        return blobHash == null ? null : RepositoryHelper.getBlob(blobHash);
+        ObjectId blobHash = getBlobHash(fileName);
+        return blobHash == null ? null : RepositoryHelper.getBlob(blobHash.toHex());
+    }
+
+    private static String toHex(ObjectId id) {
+        return id == null ? "" : id.toHex();
+    }
+
+    private static ObjectId fromHex(String hex) {
+        return hex == null || hex.isEmpty() ? null : ObjectId.fromHex(hex);
+    }
+
+    /**
+     * Commits written with java serialization, as the oldest versions did, hold their hashes as hexadecimal
+     * strings, empty for a missing parent.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        message = (String) fields.get("message", null);
+        timeStamp = (Date) fields.get("timeStamp", null);
+        sha1Hash = fromHex((String) fields.get("sha1Hash", null));
+        treeHash = fromHex((String) fields.get("treeHash", null));
+        firstParentHash = fromHex((String) fields.get("firstParentHash", null));
+        secondParentHash = fromHex((String) fields.get("secondParentHash", null));
+
+        Map<?, ?> files = (Map<?, ?>) fields.get("fileNameToBlobHash", null);
+        if (files != null) {
+            fileNameToBlobHash = new HashMap<>();
+            files.forEach((fileName, blobHash) -> fileNameToBlobHash.put((String) fileName,
+                ObjectId.fromHex((String) blobHash)));
+        }
     }
 }
\ No newline at end of file
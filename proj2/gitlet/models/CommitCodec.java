@@ -0,0 +1,74 @@
+package gitlet.models;
+
+import gitlet.utils.ObjectId;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * @className: CommitCodec
+ * @description: Version 2 layout of a commit, after the common header:
+ * - message (varint length + utf-8), timestamp (8 bytes, millis since epoch)
+ * - parent count (1 byte), then each parent hash as 20 raw bytes
+ * - the hash of the root tree as 20 raw bytes
+ * Version 1 commits store a file count (varint) in place of the tree, then each file name
+ * (varint length + utf-8) and its blob hash as 20 raw bytes, sorted by file name.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+class CommitCodec extends BinaryObjectCodec<Commit> {
+    private static final int VERSION = 2;
+    private static final int FILE_LIST_VERSION = 1;
+
+    CommitCodec() {
+        super('c', Commit.class);
+    }
+
+    @Override
+    protected int version() {
+        return VERSION;
+    }
+
+    @Override
+    protected void encodeBody(Commit commit, DataOutputStream out) throws IOException {
+        writeString(out, commit.getMessage());
+        out.writeLong(commit.getTimeStamp().getTime());
+
+        List<ObjectId> parents = commit.getParentIds();
+        out.writeByte(parents.size());
+        for (ObjectId parent : parents) {
+            writeId(out, parent);
+        }
+
+        writeId(out, commit.getTreeHash());
+    }
+
+    @Override
+    protected Commit decodeBody(String hash, int version, DataInputStream in) throws IOException {
+        String message = readString(in);
+        Date timeStamp = new Date(in.readLong());
+
+        int parentCount = in.readUnsignedByte();
+        ObjectId firstParentHash = parentCount > 0 ? readId(in) : null;
+        ObjectId secondParentHash = parentCount > 1 ? readId(in) : null;
+        ObjectId id = ObjectId.fromHex(hash);
+
+        if (version > FILE_LIST_VERSION) {
+            return new Commit(id, message, timeStamp, null, readId(in), firstParentHash, secondParentHash);
+        }
+
+        int fileCount = (int) readVarInt(in);
+        HashMap<String, ObjectId> fileNameToBlobHash = new HashMap<>(fileCount * 4 / 3 + 1);
+        for (int i = 0; i < fileCount; i++) {
+            String fileName = readString(in);
+            fileNameToBlobHash.put(fileName, readId(in));
+        }
+
+        return new Commit(id, message, timeStamp, fileNameToBlobHash, null, firstParentHash, secondParentHash);
+    }
+}
@@ -8,5 +8,12 @@ import java.io.Serializable;
  * @date: 27/01/2024
  **/
 public abstract class GitletObject implements Serializable {
+    private static final long serialVersionUID = -1796723213204999724L;
+
     protected abstract String sha1Hash();
+
+    /**
+     * @return the bytes stored in the object store for this object, see {@link GitletObjectCodec}
+     */
+    public abstract byte[] encode();
 }
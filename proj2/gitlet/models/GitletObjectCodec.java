@@ -0,0 +1,14 @@
+package gitlet.models;
+
+/**
+ * @className: GitletObjectCodec
+ * @description: Turns a gitlet object into the bytes kept in the object store and back.
+ * The hash is not part of the encoding, it is the key the bytes are stored under.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public interface GitletObjectCodec<T extends GitletObject> {
+    byte[] encode(T object);
+
+    T decode(String hash, byte[] bytes);
+}
@@ -43,8 +43,7 @@ public class Head {
     }
 
     public static Blob getBlob(String fileName) {
-        String blobHash = headCommit.getFileNameToBlobHash().get(fileName);
-        return RepositoryHelper.getBlob(blobHash);
+        return RepositoryHelper.getBlob(headCommit.getBlobHash(fileName).toHex());
     }
 
     public static String getHeadCommitPath() {
@@ -1,8 +1,19 @@
 package gitlet.models;
 
 import gitlet.handllers.*;
+import gitlet.storage.CommitCatalog;
+import gitlet.utils.Config;
+import gitlet.utils.ObjectId;
 import gitlet.utils.RepositoryHelper;
+import gitlet.utils.Trace;
 import gitlet.utils.Utils;
+import gitlet.worktree.AddPipeline;
+import gitlet.worktree.FileStat;
+import gitlet.worktree.FileSystemMonitor;
+import gitlet.worktree.IgnoreRules;
+import gitlet.worktree.ParallelCheckout;
+import gitlet.worktree.SparseCheckout;
+import gitlet.worktree.WorkingTree;
 
 import java.io.File;
 import java.io.IOException;
@@ -25,6 +36,9 @@ public class Repository {
      *        - file1 whose file name is the rest of the sha1 hash number
      *        - file2
      *        - ....
+     *        - pack // objects folded together by repack
+     *            - pack-<sha1>.pack // the objects appended one after another
+     *            - pack-<sha1>.idx // sorted object ids with their offset in the pack
      *    - HEAD // file that stores the path to the current branch's hash number of the HEAD commit
      *              It points to the file under refs/heads for a branch or to a commit if in 'detached HEAD' state.
      *    - refs // a directory that holds references to commits, which are
@@ -60,17 +74,166 @@ public class Repository {
      * - nor tracked by the head commit.
      */
     private static Set<String> getUntrackedFiles() {
+        return getUntrackedFiles(listWorkingFiles());
+    }
+
+    /**
+     * @return the paths of every file in the working tree included by the sparse checkout and not ignored by
+     * .gitletignore, from the file system monitor when one is running. Tracked files are never ignored.
+     */
+    private static Set<String> listWorkingFiles() {
+        FileSystemMonitor.Snapshot snapshot = FileSystemMonitor.query(stagingArea.getMonitorToken());
+        Set<String> files;
+        if (snapshot == null) {
+            files = WorkingTree.walk();
+        } else {
+            stagingArea.useMonitor(snapshot);
+            files = snapshot.getFiles();
+        }
+
+        IgnoreRules ignoreRules = IgnoreRules.load();
+        if (!ignoreRules.isEmpty()) {
+            Stream.concat(Head.getHeadCommit().getAllFiles().stream(), stagingArea.getStagedBlobs().keySet().stream())
+                .filter(fileName -> !files.contains(fileName) && ignoreRules.isIgnored(fileName))
+                .filter(WorkingTree::isFile)
+                .forEach(files::add);
+        }
+        if (SparseCheckout.isEnabled()) {
+            files.removeIf(fileName -> !SparseCheckout.includes(fileName));
+        }
+        return files;
+    }
+
+    /**
+     * @param workingFiles the paths of every file in the working tree
+     */
+    private static Set<String> getUntrackedFiles(Set<String> workingFiles) {
         Set<String> committedFile = Head.getHeadCommit().getAllFiles();
 
-        Set<String> untrackedFiles = plainFilenamesIn(CWD).stream().
+        Set<String> untrackedFiles = workingFiles.stream().
             filter(fileName -> !stagingArea.stageForAdditionContains(fileName)
                 && !committedFile.contains(fileName)
                 || stagingArea.stageForRemovalContains(fileName)).
+            filter(WorkingTree::isFile).
             collect(Collectors.toSet());
 
         return untrackedFiles;
     }
 
+    /**
+     * Exit before anything is written when an untracked file would be overwritten by one of TARGETFILES,
+     * when a file not tracked by the head commit stands where one of their directories goes, or when an
+     * untracked file lies in a directory that one of them replaces by a file.
+     */
+    private static void checkUntrackedFilesInTheWay(Set<String> targetFiles) {
+        Set<String> untrackedFiles = getUntrackedFiles();
+        Set<String> targetDirectories = new HashSet<>();
+        targetFiles.forEach(fileName -> addParentDirectories(fileName, targetDirectories));
+
+        boolean inTheWay = untrackedFiles.stream().anyMatch(fileName -> targetFiles.contains(fileName)
+                || hasParentDirectoryIn(fileName, targetFiles))
+            || targetDirectories.stream().anyMatch(directory -> WorkingTree.isFile(directory) && !Head.contains(directory));
+        if (inTheWay) {
+            messageAndExit("There is an untracked file in the way; delete it, or add and commit it first.");
+        }
+    }
+
+    private static void addParentDirectories(String path, Set<String> directories) {
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            if (!directories.add(path.substring(0, slash))) {
+                return;
+            }
+        }
+    }
+
+    private static boolean hasParentDirectoryIn(String path, Set<String> paths) {
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            if (paths.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the working version of FILENAME is its version in COMMIT, the file is only read
+     * when its stat data changed since it was last hashed
+     */
+    private static boolean isWorkingFileEqual(Commit commit, String fileName) {
+        ObjectId blobHash = commit.getBlobHash(fileName);
+        return blobHash != null && blobHash.equals(stagingArea.hashWorkingFile(fileName));
+    }
+
+    /**
+     * Overwrite the working version of FILENAME with its version in COMMIT, recording its new stat data.
+     */
+    private static void restoreFile(Commit commit, String fileName) {
+        commit.restoreFile(fileName);
+        stagingArea.recordFile(fileName, commit.getBlobHash(fileName));
+    }
+
+    /**
+     * Make the working tree match TARGET, coming from the head commit. Only the files that differ between the
+     * two commits are deleted or written, found by a diff of their trees; a file both commits have in the same
+     * version is only written again when its working version was changed, so the others keep their mtime.
+     * Files left out by the sparse checkout are neither written nor deleted.
+     */
+    private static void switchTo(Commit target) {
+        Map<String, ObjectId> changes = new HashMap<>();
+        Tree.diff(Head.getHeadCommit().getTreeHash(), target.getTreeHash(), changes);
+        int skipped = 0;
+        if (SparseCheckout.isEnabled()) {
+            int changed = changes.size();
+            changes.keySet().removeIf(fileName -> !SparseCheckout.includes(fileName));
+            skipped = changed - changes.size();
+        }
+
+        Map<String, ObjectId> toWrite = new HashMap<>();
+        changes.forEach((fileName, blobHash) -> {
+            if (blobHash == null) {
+                deleteFile(fileName);
+            } else {
+                toWrite.put(fileName, blobHash);
+            }
+        });
+        target.getFileNameToBlobHash().forEach((fileName, blobHash) -> {
+            if (!changes.containsKey(fileName) && SparseCheckout.includes(fileName)
+                && !blobHash.equals(stagingArea.hashWorkingFile(fileName))) {
+                toWrite.put(fileName, blobHash);
+            }
+        });
+
+        ParallelCheckout.write(toWrite).forEach((fileName, stat) -> {
+            if (stat != null) {
+                stagingArea.recordFile(fileName, stat, toWrite.get(fileName));
+            }
+        });
+
+        long deleted = changes.values().stream().filter(Objects::isNull).count();
+        int excluded = skipped;
+        Trace.register("checkout", () -> toWrite.size() + " files written, " + deleted + " deleted"
+            + (SparseCheckout.isEnabled() ? ", " + excluded + " changes outside the sparse checkout" : ""));
+    }
+
+    /**
+     * Take the version of FILENAME in COMMIT for a merge: write it and stage it, or only stage it when the
+     * sparse checkout leaves it out of the working tree.
+     */
+    public void takeVersion(Commit commit, String fileName) {
+        if (SparseCheckout.includes(fileName)) {
+            checkoutFileFromCommit(commit.getSha1Hash(), fileName);
+            add(fileName);
+        } else {
+            stagingArea.stage(fileName, commit.getBlobHash(fileName));
+            stagingArea.persist();
+        }
+    }
+
+    private static void deleteFile(String fileName) {
+        WorkingTree.delete(fileName);
+        stagingArea.forgetFile(fileName);
+    }
+
     private static List<MergeHandler> getMergeHandlers() {
         return List.of(new MergeHandler1(),
             new MergeHandler2(),
@@ -81,20 +244,6 @@ public class Repository {
             new MergeHandler7());
     }
 
-    private static Set<Commit> traverseCommitTree(Commit commit) {
-        Set<Commit> set = new HashSet<>();
-        Queue<Commit> queue = new LinkedList<>();
-        queue.offer(commit);
-
-        while (!queue.isEmpty()) {
-            Commit nextCommit = queue.poll();
-            set.add(nextCommit);
-            nextCommit.getParents().stream().filter(Objects::nonNull).forEach(queue::offer);
-        }
-
-        return set;
-    }
-
     public boolean gitletExists() {
         return GITLET_DIR.exists();
     }
@@ -116,6 +265,7 @@ public class Repository {
         makeDirectory();
         createBranchMaster();
         writeContents(HEAD_FILE, join(REFS_HEADS_DIR, currentBranch.getName()).toString());
+        RepositoryHelper.writeRepositoryFormat();
         stagingArea.persist();
     }
 
@@ -142,27 +292,77 @@ public class Repository {
     }
 
     public void add(String fileName) {
-        if (!isFileExistInRepository(fileName)) {
-            messageAndExit("File does not exist.");
-        }
+        add(List.of(fileName));
+    }
 
-        // if the file is identical to the version in the current commit, do not stage it to be added
-        // -- case 1: the file is not in the staging area -> do nothing
-        // -- case 2: the file is in the staging area -> remove it from the staging area
-        if (Head.getHeadCommit().isFileInRepoEqual(fileName)) {
-            if (stagingArea.contains(fileName)) {
-                stagingArea.clearStagedBlob(fileName);
+    /**
+     * Stage the files at PATHS. A directory stands for every file below it that is not ignored, the empty path
+     * for the whole working tree. A file whose stat data is unchanged since it was last hashed is decided from
+     * its cached hash; the others are read, hashed and stored in parallel by an AddPipeline. The index is
+     * written once, at the end.
+     */
+    public void add(List<String> paths) {
+        Set<String> fileNames = new TreeSet<>();
+        Set<String> expandedFileNames = new HashSet<>();
+        Set<String> workingFiles = null;
+        for (String path : paths) {
+            if (isFileExistInRepository(path)) {
+                fileNames.add(path);
+                continue;
+            }
+            if (!WorkingTree.isDirectory(path)) {
+                messageAndExit("File does not exist.");
+            }
+
+            if (workingFiles == null) {
+                workingFiles = listWorkingFiles();
+            }
+            String prefix = path.isEmpty() ? "" : path + "/";
+            workingFiles.stream().filter(fileName -> fileName.startsWith(prefix)).forEach(expandedFileNames::add);
+        }
+        fileNames.addAll(expandedFileNames);
+
+        Map<String, ObjectId> headFiles = Head.getHeadCommit().getFileNameToBlobHash();
+        Map<String, ObjectId> toStore = new HashMap<>();
+        for (String fileName : fileNames) {
+            ObjectId headHash = headFiles.get(fileName);
+            ObjectId cachedHash = stagingArea.getCachedHash(fileName);
+            if (cachedHash == null) {
+                // the walk takes entries for files unseen, a directory stands only for its regular files
+                if (!expandedFileNames.contains(fileName) || FileStat.of(WorkingTree.file(fileName)) != null) {
+                    toStore.put(fileName, headHash);
+                }
+            } else if (cachedHash.equals(headHash)) {
+                unstageCommittedVersion(fileName);
+            } else if (!cachedHash.equals(stagingArea.getStagedBlobs().get(fileName))) {
+                toStore.put(fileName, headHash);
             }
-        } else {
-            Blob blob = new Blob(fileName, readFileFromRepositoryAsString(fileName));
-            blob.persist();
-            // Staging an already-staged file overwrites the previous entry in the staging area with the new contents.
-            stagingArea.stage(blob.getFileName(), blob.sha1Hash());
         }
 
+        AddPipeline.store(toStore).forEach((fileName, stored) -> {
+            if (stored.getBlobHash().equals(toStore.get(fileName))) {
+                unstageCommittedVersion(fileName);
+            } else {
+                // Staging an already-staged file overwrites the previous entry in the staging area with the new contents.
+                stagingArea.stage(fileName, stored.getBlobHash());
+            }
+            stagingArea.recordFile(fileName, stored.getStat(), stored.getBlobHash());
+        });
+
         stagingArea.persist();
     }
 
+    /**
+     * if the file is identical to the version in the current commit, do not stage it to be added
+     * -- case 1: the file is not in the staging area -> do nothing
+     * -- case 2: the file is in the staging area -> remove it from the staging area
+     */
+    private static void unstageCommittedVersion(String fileName) {
+        if (stagingArea.contains(fileName)) {
+            stagingArea.clearStagedBlob(fileName);
+        }
+    }
+
     public void rm(String fileName) {
         if (!Head.contains(fileName) && !stagingArea.contains(fileName)) {
             messageAndExit("No reason to remove the file.");
@@ -178,7 +378,8 @@ public class Repository {
                 stagingArea.stageForRemoval(fileName);
 
                 // remove the file from the working directory if the user has not already done so
-                restrictedDelete(join(CWD, fileName));
+                WorkingTree.delete(fileName);
+                stagingArea.forgetFile(fileName);
             }
 
             stagingArea.persist();
@@ -199,9 +400,17 @@ public class Repository {
     }
 
     private Commit doCommit(String message) {
+        return doCommit(message, null);
+    }
+
+    /**
+     * @param secondParentHash the tip of the merged branch for a merge commit, null otherwise
+     */
+    private Commit doCommit(String message, ObjectId secondParentHash) {
         // Create a new commit object by cloning the head commit. As gitlet don't support detached head mode
         // So, the HEAD also points to the tip commit of current branch.
         Commit newCommit = Head.getHeadCommit().buildNext(message);
+        newCommit.setSecondParentHash(secondParentHash);
 
         newCommit.updateIndex(stagingArea);
         newCommit.persist();
@@ -219,25 +428,55 @@ public class Repository {
     }
 
     private void logCommit(Commit commit) {
+        logCommit(commit.getSha1Hash(), commit.getFirstParentHash(), commit.getSecondParentHash(),
+            commit.getTimeStamp(), commit.getMessage());
+    }
+
+    private void logCommit(String hash, String firstParentHash, String secondParentHash, Date date, String message) {
         StringBuilder output = new StringBuilder();
-        Date date = commit.getTimeStamp();
         String formattedDate = String.format("Date: %ta %tb %td %tT %tY %tz", date, date, date, date, date, date);
 
-        output.append("===\n" + "commit " + commit.getSha1Hash() + "\n");
+        output.append("===\n" + "commit " + hash + "\n");
 
-        if (commit.isMergeCommit()) {
+        if (!secondParentHash.isEmpty()) {
             output.append("Merge: "
-                + commit.getFirstParentHash().substring(0, 7)
-                + " " + commit.getSecondParentHash().substring(0, 7) + "\n");
+                + firstParentHash.substring(0, 7)
+                + " " + secondParentHash.substring(0, 7) + "\n");
         }
 
-        output.append(formattedDate + "\n" + commit.getMessage() + "\n");
+        output.append(formattedDate + "\n" + message + "\n");
 
         System.out.println(output);
     }
 
     public void status() {
-        new StatusPrinter().status();
+        status(false);
+    }
+
+    /**
+     * @param aheadBehind whether to also print how far the current branch is ahead of and behind each other branch
+     */
+    public void status(boolean aheadBehind) {
+        new StatusPrinter().status(aheadBehind);
+        // every tracked file was checked, the stat cache is up to date with the file system monitor
+        stagingArea.confirmMonitorToken();
+        // keep the hashes of the files read by status, so that the next one does not read them again
+        if (stagingArea.isStatCacheChanged()) {
+            stagingArea.persist();
+        }
+    }
+
+    /**
+     * Print the value of the setting KEY, or change it to VALUE when one is given.
+     */
+    public void config(String key, String value) {
+        if (!Config.isKnownKey(key)) {
+            messageAndExit("No config key with that name exists.");
+        } else if (value == null) {
+            System.out.println(Config.get(key));
+        } else {
+            Config.set(key, value);
+        }
     }
 
     /**
@@ -250,13 +489,10 @@ public class Repository {
         if (!Head.contains(fileName)) {
             messageAndExit("File does not exist in that commit.");
         } else {
-            Blob blob = Head.getBlob(fileName);
-            writeContents(join(CWD, fileName), blob.getContent());
+            restoreFile(Head.getHeadCommit(), fileName);
 
-            if (stagingArea.contains(fileName)) {
-                stagingArea.removeFromMapping(fileName);
-                stagingArea.persist();
-            }
+            stagingArea.removeFromMapping(fileName);
+            stagingArea.persist();
         }
     }
 
@@ -269,17 +505,56 @@ public class Repository {
             if (!commit.containsFile(fileName)) {
                 messageAndExit("File does not exist in that commit.");
             } else {
-                Blob blob = commit.getBlob(fileName);
-                writeContents(join(CWD, fileName), blob.getContent());
+                restoreFile(commit, fileName);
 
-                if (stagingArea.contains(fileName)) {
-                    stagingArea.removeFromMapping(fileName);
-                    stagingArea.persist();
-                }
+                stagingArea.removeFromMapping(fileName);
+                stagingArea.persist();
             }
         }
     }
 
+    public void sparseCheckoutList() {
+        SparseCheckout.getPatterns().forEach(System.out::println);
+    }
+
+    /**
+     * Only keep the files of the head commit matching PATTERNS in the working tree, or every file again when
+     * PATTERNS is null. Files leaving the sparse checkout are deleted unless they were modified, files entering
+     * it are written unless a file is already there.
+     */
+    public void sparseCheckout(List<String> patterns) {
+        if (!stagingArea.isEmpty()) {
+            messageAndExit("You have uncommitted changes.");
+        }
+
+        Commit head = Head.getHeadCommit();
+        Set<String> included = head.getAllFiles().stream()
+            .filter(SparseCheckout::includes)
+            .collect(Collectors.toSet());
+        if (patterns == null) {
+            SparseCheckout.disable();
+        } else {
+            SparseCheckout.set(patterns);
+        }
+
+        Map<String, ObjectId> toWrite = new HashMap<>();
+        head.getFileNameToBlobHash().forEach((fileName, blobHash) -> {
+            boolean wasIncluded = included.contains(fileName);
+            boolean isIncluded = SparseCheckout.includes(fileName);
+            if (wasIncluded && !isIncluded && isWorkingFileEqual(head, fileName)) {
+                deleteFile(fileName);
+            } else if (!wasIncluded && isIncluded && !WorkingTree.isFile(fileName)) {
+                toWrite.put(fileName, blobHash);
+            }
+        });
+        ParallelCheckout.write(toWrite).forEach((fileName, stat) -> {
+            if (stat != null) {
+                stagingArea.recordFile(fileName, stat, toWrite.get(fileName));
+            }
+        });
+        stagingArea.persist();
+    }
+
     public void rmBranch(String branchName) {
         if (!branchExists(branchName)) {
             messageAndExit("A branch with that name does not exist.");
@@ -290,30 +565,79 @@ public class Repository {
         }
     }
 
-    //In my implementation, the commit log will be sorted in descending order of the commit time stamp.
+    /**
+     * Stream the commit catalog, the newest commit first, without decoding any commit.
+     */
     public void globalLog() {
-        getAllCommits().stream().sorted(Comparator.comparing(Commit::getTimeStamp).reversed()).forEach(this::logCommit);
+        RepositoryHelper.visitCommitsNewestFirst(entry -> {
+            logCommit(entry.getHash(), entry.getFirstParentHash(), entry.getSecondParentHash(),
+                entry.getTimeStamp(), entry.getMessage());
+            return true;
+        });
     }
 
     /**
      * Get all the commits in the repository including the initial commit and the commit that is no longer reachable
      *
-     * @return
+     * @return the commits, the oldest first
      */
     private List<Commit> getAllCommits() {
-        return plainFilenamesIn(LOGS_DIR).stream().map(RepositoryHelper::getCommit).collect(Collectors.toList());
+        LinkedList<Commit> commits = new LinkedList<>();
+        RepositoryHelper.visitCommitsNewestFirst(entry -> {
+            commits.addFirst(RepositoryHelper.getCommit(entry.getHash()));
+            return true;
+        });
+        return commits;
     }
 
     public void find(String commitMessage) {
-        Set<Commit> collect = getAllCommits().stream().
-            filter(commit -> commit.getMessage().equals(commitMessage)).collect(Collectors.toSet());
+        printFoundCommits(RepositoryHelper.findCommitsByMessage(commitMessage));
+    }
+
+    /**
+     * Print the commits whose message holds every word of QUERY, whatever their case.
+     */
+    public void findByWords(String query) {
+        printFoundCommits(RepositoryHelper.findCommitsByWords(query));
+    }
+
+    /**
+     * Print the commits whose message holds a word starting with PREFIX, whatever its case.
+     */
+    public void findByPrefix(String prefix) {
+        printFoundCommits(RepositoryHelper.findCommitsByPrefix(prefix));
+    }
 
-        if (collect.isEmpty()) {
+    private void printFoundCommits(List<CommitCatalog.Entry> commits) {
+        if (commits.isEmpty()) {
             messageAndExit("Found no commit with that message.");
         } else {
-            collect.stream().
-                sorted(Comparator.comparing(Commit::getTimeStamp).reversed()).
-                forEach(commit -> System.out.println(commit.getSha1Hash()));
+            commits.forEach(entry -> System.out.println(entry.getHash()));
+        }
+    }
+
+    /**
+     * Rebuild the index of the commit messages searched by find.
+     */
+    public void reindex() {
+        RepositoryHelper.reindex();
+    }
+
+    /**
+     * Rewrite the history of a repository whose blobs are identified by their file name as well,
+     * see {@link BlobMigration}. Every commit gets a new id, which is printed so that ids noted before are not
+     * looked for. The hashes cached for the working files are dropped with the old blobs.
+     */
+    public void migrate() {
+        if (!RepositoryHelper.needsMigration()) {
+            messageAndExit("The repository is already migrated.");
+        } else if (!stagingArea.isEmpty()) {
+            messageAndExit("You have uncommitted changes.");
+        } else {
+            int rewritten = new BlobMigration().run();
+            stagingArea.forgetAllFiles();
+            stagingArea.persist();
+            System.out.println("Rewrote " + rewritten + " commits; every commit id has changed.");
         }
     }
 
@@ -327,26 +651,24 @@ public class Repository {
         } else {
             Commit given = RepositoryHelper.getBranchTipCommit(givenBranchName);
             Commit current = RepositoryHelper.getCommit(currentBranch.getTipHash());
-            Commit lastCommonAncestor = findLastCommonAncestor(current, given);
 
             Set<String> allMergedFiles = new HashSet<>(given.getAllFiles());
             allMergedFiles.addAll(current.getAllFiles());
 
-            allMergedFiles.stream().
-                filter(getUntrackedFiles()::contains).
-                findFirst().
-                ifPresent(file ->
-                    messageAndExit("There is an untracked file in the way; delete it, or add and commit it first."));
+            checkUntrackedFilesInTheWay(allMergedFiles);
 
-            if (lastCommonAncestor.equals(given)) {
+            // answered from the reachability bitmaps, the merge base is only searched for a real merge
+            if (RepositoryHelper.isAncestor(given, current)) {
                 messageAndExit("Given branch is an ancestor of the current branch.");
-            } else if (lastCommonAncestor.equals(current)) {
+            } else if (RepositoryHelper.isAncestor(current, given)) {
                 this.checkoutBranch(givenBranchName);
                 currentBranch.setTipCommit(given);
                 Head.update(given, currentBranch.getName());
                 messageAndExit("Current branch fast-forwarded.");
             }
 
+            Commit lastCommonAncestor = findLastCommonAncestor(current, given);
+
             for (String fileName : allMergedFiles) {
                 for (MergeHandler handler : getMergeHandlers()) {
                     boolean handled = handler.handle(fileName, current, given, lastCommonAncestor, this);
@@ -357,19 +679,13 @@ public class Repository {
             }
 
             String message = "Merged " + givenBranchName + " into " + currentBranch.getName() + ".";
-            Commit mergeCommit = this.doCommit(message);
-            mergeCommit.setSecondParentHash(given.getSha1Hash());
-            mergeCommit.persist();
+            this.doCommit(message, given.getId());
         }
     }
 
     private Commit findLastCommonAncestor(Commit commit1, Commit commit2) {
-        Set<Commit> commit1Ancestors = traverseCommitTree(commit1);
-        Set<Commit> commit2Ancestors = traverseCommitTree(commit2);
-
-        commit1Ancestors.retainAll(commit2Ancestors);
-
-        return commit1Ancestors.stream().max(Comparator.comparing(Commit::getTimeStamp)).orElse(null);
+        String mergeBaseHash = RepositoryHelper.findMergeBase(commit1, commit2);
+        return mergeBaseHash == null ? null : RepositoryHelper.getCommit(mergeBaseHash);
     }
 
     public void checkoutBranch(String branchName) {
@@ -381,21 +697,16 @@ public class Repository {
 
             Commit givenCommit = RepositoryHelper.getBranchTipCommit(branchName);
 
-            givenCommit.getAllFiles().stream().
-                filter(getUntrackedFiles()::contains).
-                findFirst().ifPresent(file
-                    -> messageAndExit("There is an untracked file in the way; delete it, or add and commit it first."));
+            checkUntrackedFilesInTheWay(givenCommit.getAllFiles());
 
-            Head.getHeadCommit().getAllFiles().forEach(fileName -> Utils.restrictedDelete(join(CWD, fileName)));
+            // overwrite the files in the working directory with the version in the newBranchTipCommit
+            switchTo(givenCommit);
 
             Head.update(givenCommit, branchName);
 
             stagingArea.clearAllStagedBlobs();
             stagingArea.removeAllMapping();
 
-            // overwrite the files in the working directory with the version in the newBranchTipCommit
-            givenCommit.restoreCommit();
-
             Head.persist();
             stagingArea.persist();
         }
@@ -419,15 +730,9 @@ public class Repository {
         } else {
             Commit commit = RepositoryHelper.getCommit(commitHash);
 
-            commit.getAllFiles().stream().
-                filter(getUntrackedFiles()::contains).
-                findFirst().
-                ifPresent(file ->
-                    messageAndExit("There is an untracked file in the way; delete it, or add and commit it first."));
-
-            Head.getHeadCommit().getAllFiles().forEach(fileName -> join(CWD, fileName).delete());
+            checkUntrackedFilesInTheWay(commit.getAllFiles());
 
-            commit.restoreCommit();
+            switchTo(commit);
             currentBranch.setTipCommit(commit);
             Head.update(commit, currentBranch.getName());
 
@@ -441,23 +746,77 @@ public class Repository {
     }
 
 
+    /**
+     * Fold every loose object into a pack, so that the objects directory stops growing one file per object.
+     * Objects written afterward are loose again until the next repack.
+     * <p>
+     * Delta chains are rebuilt on the way: going through the commits from the oldest, each new version
+     * of a file is stored as a delta against its previous version, and in full again once the chain
+     * reaches core.deltaDepth.
+     */
+    public void repack() {
+        int maxDepth = Config.getInt(Config.DELTA_DEPTH);
+        Map<ObjectId, ObjectId> deltaBases = new HashMap<>();
+        Map<ObjectId, Integer> depths = new HashMap<>();
+        Map<String, ObjectId> previousVersions = new HashMap<>();
+
+        getAllCommits()
+            .forEach(commit -> commit.getFileNameToBlobHash().forEach((fileName, blobHash) -> {
+                ObjectId previousHash = previousVersions.put(fileName, blobHash);
+                if (depths.containsKey(blobHash)) {
+                    return;
+                }
+
+                if (previousHash != null && depths.get(previousHash) < maxDepth) {
+                    deltaBases.put(blobHash, previousHash);
+                    depths.put(blobHash, depths.get(previousHash) + 1);
+                } else {
+                    depths.put(blobHash, 0);
+                }
+            }));
+
+        RepositoryHelper.repack(deltaBases, depths);
+    }
+
     private class StatusPrinter {
         Set<String> stagedForRemovalFiles = stagingArea.getRemovedBlobs();
         Set<String> stagedForAdditionFiles = stagingArea.getStagedBlobs().keySet();
         Set<String> committedFiles = Head.getHeadCommit().getAllFiles();
-        List<String> allFilesInCWD = plainFilenamesIn(CWD);
+        Set<String> allFilesInCWD = listWorkingFiles();
 
-        public void status() {
+        public void status(boolean aheadBehind) {
 
             String output = generateBranchesSection()
                 + generateStagedFilesSection()
                 + generateRemovedFilesSection()
                 + generateModificationsNotStagedSection()
-                + generateUntrackedFilesSection();
+                + generateUntrackedFilesSection()
+                + (aheadBehind ? generateAheadBehindSection() : "");
 
             System.out.println(output);
         }
 
+        /**
+         * For each other branch, the number of commits of the current branch it does not have,
+         * then the number of its commits the current branch does not have.
+         */
+        private String generateAheadBehindSection() {
+            StringBuilder output = new StringBuilder();
+            Commit current = Head.getHeadCommit();
+
+            output.append("=== Ahead/Behind ===\n");
+            plainFilenamesIn(REFS_HEADS_DIR).stream().
+                filter(branchName -> !branchName.equals(currentBranch.getName())).
+                forEach(branchName -> {
+                    int[] counts = RepositoryHelper.countAheadBehind(current, getBranchTipCommit(branchName));
+                    output.append(branchName).append(": ahead ").append(counts[0])
+                        .append(", behind ").append(counts[1]).append("\n");
+                });
+            output.append("\n");
+
+            return output.toString();
+        }
+
         private String generateBranchesSection() {
             StringBuilder output = new StringBuilder();
             List<String> branches = plainFilenamesIn(REFS_HEADS_DIR);
@@ -517,23 +876,25 @@ public class Repository {
         }
 
         private Set<String> getModifiedStagedFiles() {
-            return allFilesInCWD.stream()
-                .filter(fileName -> stagedForAdditionFiles.contains(fileName))
-                .filter(fileName -> !stagingArea.getStagedBlob(fileName).getFileHash()
-                    .equals(Utils.sha1(fileName, readFileFromRepositoryAsString(fileName))))
+            return stagedForAdditionFiles.stream()
+                .filter(fileName -> allFilesInCWD.contains(fileName))
+                .filter(fileName -> !stagingArea.getStagedBlobs().get(fileName)
+                    .equals(stagingArea.hashWorkingFile(fileName)))
                 .collect(Collectors.toSet());
         }
 
         private Set<String> getModifiedUnstagedFiles() {
             return committedFiles.stream()
+                .filter(SparseCheckout::includes)
                 .filter(fileName -> !stagedForAdditionFiles.contains(fileName) && !stagedForRemovalFiles.contains(fileName))
-                .filter(fileName -> !allFilesInCWD.contains(fileName) || !Head.getHeadCommit()
-                    .isFileInRepoEqual(fileName))
+                .filter(fileName -> !allFilesInCWD.contains(fileName)
+                    || !isWorkingFileEqual(Head.getHeadCommit(), fileName))
                 .collect(Collectors.toSet());
         }
 
         private Set<String> getDeletedStagedFiles() {
             return stagedForAdditionFiles.stream()
+                .filter(SparseCheckout::includes)
                 .filter(fileName -> !allFilesInCWD.contains(fileName))
                 .collect(Collectors.toSet());
         }
@@ -542,7 +903,7 @@ public class Repository {
             StringBuilder output = new StringBuilder();
 
             output.append("=== Untracked Files ===\n");
-            getUntrackedFiles().forEach(fileName -> output.append(fileName).append("\n"));
+            getUntrackedFiles(allFilesInCWD).forEach(fileName -> output.append(fileName).append("\n"));
             output.append("\n");
 
             return output.toString();
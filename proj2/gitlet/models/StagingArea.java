@@ -1,35 +1,145 @@
 package gitlet.models;
 
+import gitlet.storage.StagingIndex;
+import gitlet.utils.ObjectId;
 import gitlet.utils.RepositoryHelper;
+import gitlet.utils.Trace;
+import gitlet.worktree.FileStat;
+import gitlet.worktree.FileSystemMonitor;
+import gitlet.worktree.IgnoreRules;
+import gitlet.worktree.WorkingTree;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static gitlet.utils.Constants.OBJECTS_DIR;
 import static gitlet.utils.Constants.STAGING_INDEX;
+import static gitlet.utils.Constants.STAGING_JOURNAL;
 import static gitlet.utils.Utils.*;
 
 /**
  * @className: StagingArea
+ * @description: Kept in a StagingIndex. Only the header is read when the staging area is loaded, the entries
+ * are read the first time they are needed, so that a command which only asks whether anything is staged,
+ * or does not use the staging area at all, does not pay for its size. The paths changed since are appended
+ * to the journal of the index when it is persisted. A staging area written by Java serialization, as older
+ * versions did, is still read, and written back in the binary format.
  * @author: Wenjie FU
  * @date: 25/01/2024
  **/
 public class StagingArea implements Serializable {
+    private static final long serialVersionUID = 7315161157464657114L;
+    private static final StagingIndex INDEX = new StagingIndex(STAGING_INDEX, STAGING_JOURNAL);
 
     /**
      * A HashMap that maps file name to blob hash
      */
-    private final HashMap<String, String> stagedBlobs;
+    private final HashMap<String, ObjectId> stagedBlobs;
     private final HashSet<String> removedBlobs;
+    /**
+     * The stat data of the working files with the blob hash of the content they had when it was taken, by path.
+     * Null in an index written before the stat cache existed
+     */
+    private HashMap<String, StatEntry> statCache;
+    private transient boolean statCacheChanged;
+    /**
+     * The token of the file system monitor as of which the stat cache is valid: a file that did not change
+     * since then, by the monitor, still has the hash of its entry without being stat-ed
+     */
+    private String monitorToken;
+    private transient String pendingMonitorToken;
+    private transient boolean monitorTrusted;
+    /**
+     * The files checked against their stat data since the index was loaded
+     */
+    private transient Set<String> checkedFiles;
+    /**
+     * Whether the entries were read, and else the counts of the header
+     */
+    private transient boolean loaded;
+    private transient int stagedCount;
+    private transient int removedCount;
+    /**
+     * The paths whose entry changed since the index was loaded, and whether anything at all changed
+     */
+    private transient Set<String> dirtyPaths;
+    private transient boolean changed;
+    /**
+     * Whether the whole index is to be written rather than the journal appended to
+     */
+    private transient boolean rewrite;
 
     public StagingArea() {
         this.stagedBlobs = new HashMap<>();
         this.removedBlobs = new HashSet<>();
+        this.loaded = true;
+        this.rewrite = true;
     }
 
     public static StagingArea load() {
-        return readObject(STAGING_INDEX, StagingArea.class);
+        if (StagingIndex.isSerialized(STAGING_INDEX)) {
+            StagingArea stagingArea = readObject(STAGING_INDEX, StagingArea.class);
+            stagingArea.readLegacyHashes();
+            stagingArea.loaded = true;
+            stagingArea.rewrite = true;
+            return stagingArea;
+        }
+
+        StagingArea stagingArea = new StagingArea();
+        stagingArea.loaded = false;
+        stagingArea.rewrite = false;
+        int[] counts = INDEX.readCounts();
+        stagingArea.stagedCount = counts[0];
+        stagingArea.removedCount = counts[1];
+        return stagingArea;
+    }
+
+    /**
+     * A serialized staging area holds its blob hashes as hexadecimal strings.
+     */
+    private void readLegacyHashes() {
+        Map<?, ?> legacy = new HashMap<>((Map<?, ?>) stagedBlobs);
+        stagedBlobs.clear();
+        legacy.forEach((fileName, blobHash) -> stagedBlobs.put((String) fileName,
+            ObjectId.fromHex((String) blobHash)));
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        StagingIndex.Contents contents = INDEX.read();
+        contents.getEntries().forEach((fileName, entry) -> {
+            if (entry.getStagedHash() != null) {
+                stagedBlobs.put(fileName, entry.getStagedHash());
+            }
+            if (entry.isRemoved()) {
+                removedBlobs.add(fileName);
+            }
+            if (entry.getStat() != null) {
+                getStatCache().put(fileName, new StatEntry(entry.getStat(), entry.getStatHash()));
+            }
+        });
+        monitorToken = contents.getMonitorToken();
+    }
+
+    private void changed(String fileName) {
+        if (dirtyPaths == null) {
+            dirtyPaths = new HashSet<>();
+        }
+        dirtyPaths.add(fileName);
+        changed = true;
     }
 
     /**
@@ -41,69 +151,330 @@ public class StagingArea implements Serializable {
      * @param fileName
      * @param blobHash
      */
-    public void stage(String fileName, String blobHash) {
+    public void stage(String fileName, ObjectId blobHash) {
+        ensureLoaded();
         if (contains(fileName)) {
             clearStagedBlob(fileName);
         }
 
         stagedBlobs.put(fileName, blobHash);
+        changed(fileName);
     }
 
     public void stageForRemoval(String fileName) {
+        ensureLoaded();
         removedBlobs.add(fileName);
+        changed(fileName);
     }
 
+    /**
+     * Write the changes made since the index was loaded: appended to the journal, or as a whole new index
+     * when the journal is full. The entries of the stat cache written now for files modified no earlier than
+     * the file written are then dropped, otherwise a later change within the same timestamp tick would go
+     * unnoticed once the index is written again with a newer time.
+     */
     public void persist() {
-        writeObject(STAGING_INDEX, this);
+        if (!changed && !rewrite) {
+            return;
+        }
+
+        Set<String> paths = dirtyPaths == null ? new HashSet<>() : dirtyPaths;
+        if (rewrite || INDEX.shouldCompact(paths.size())) {
+            long indexTime = INDEX.write(entries(), monitorToken);
+            if (getStatCache().values().removeIf(entry -> entry.stat.isRacy(indexTime))) {
+                INDEX.write(entries(), monitorToken);
+            }
+        } else {
+            long journalTime = append(paths);
+            Set<String> racyPaths = new HashSet<>();
+            paths.forEach(fileName -> {
+                StatEntry entry = getStatCache().get(fileName);
+                if (entry != null && entry.stat.isRacy(journalTime)) {
+                    getStatCache().remove(fileName);
+                    racyPaths.add(fileName);
+                }
+            });
+            if (!racyPaths.isEmpty()) {
+                append(racyPaths);
+            }
+        }
+
+        dirtyPaths = null;
+        changed = false;
+        rewrite = false;
+        statCacheChanged = false;
+    }
+
+    private long append(Set<String> paths) {
+        Map<String, StagingIndex.Entry> changes = new TreeMap<>();
+        paths.forEach(fileName -> changes.put(fileName, entry(fileName)));
+        return INDEX.append(changes, stagedBlobs.size(), removedBlobs.size(), monitorToken);
+    }
+
+    private SortedMap<String, StagingIndex.Entry> entries() {
+        SortedMap<String, StagingIndex.Entry> entries = new TreeMap<>();
+        stagedBlobs.keySet().forEach(fileName -> entries.put(fileName, entry(fileName)));
+        removedBlobs.forEach(fileName -> entries.put(fileName, entry(fileName)));
+        getStatCache().keySet().forEach(fileName -> entries.put(fileName, entry(fileName)));
+        return entries;
+    }
+
+    /**
+     * @return the entry of FILENAME in the index, or null if the index has nothing on it
+     */
+    private StagingIndex.Entry entry(String fileName) {
+        ObjectId stagedHash = stagedBlobs.get(fileName);
+        boolean removed = removedBlobs.contains(fileName);
+        StatEntry statEntry = getStatCache().get(fileName);
+        if (stagedHash == null && !removed && statEntry == null) {
+            return null;
+        }
+        return statEntry == null ? new StagingIndex.Entry(stagedHash, removed, null, null)
+            : new StagingIndex.Entry(stagedHash, removed, statEntry.stat, statEntry.blobHash);
+    }
+
+    private Set<String> getCheckedFiles() {
+        // transient fields are not initialized by deserialization
+        if (checkedFiles == null) {
+            checkedFiles = new HashSet<>();
+        }
+        return checkedFiles;
+    }
+
+    private HashMap<String, StatEntry> getStatCache() {
+        if (statCache == null) {
+            statCache = new HashMap<>();
+        }
+        return statCache;
+    }
+
+    /**
+     * @return the blob hash of the working version of FILENAME, or null if there is no such file.
+     * The file is only read when its stat data changed since it was last hashed.
+     */
+    public ObjectId hashWorkingFile(String fileName) {
+        ensureLoaded();
+        if (isWatched(fileName) && getStatCache().containsKey(fileName)) {
+            return getStatCache().get(fileName).blobHash;
+        }
+
+        File file = WorkingTree.file(fileName);
+        FileStat stat = FileStat.of(file);
+        getCheckedFiles().add(fileName);
+        if (stat == null) {
+            forgetFile(fileName);
+            return null;
+        }
+
+        StatEntry entry = getStatCache().get(fileName);
+        if (entry != null && entry.stat.equals(stat)) {
+            return entry.blobHash;
+        }
+        ObjectId blobHash = ObjectId.fromHex(Blob.hash(fileName, file).getHash());
+        recordFile(fileName, stat, blobHash);
+        return blobHash;
+    }
+
+    /**
+     * @return the blob hash of the working version of FILENAME when its stat data is unchanged since it was
+     * last hashed, or null when the file has to be read to know it
+     */
+    public ObjectId getCachedHash(String fileName) {
+        ensureLoaded();
+        StatEntry entry = getStatCache().get(fileName);
+        if (entry == null || isWatched(fileName)) {
+            return entry == null ? null : entry.blobHash;
+        }
+        return entry.stat.equals(FileStat.of(WorkingTree.file(fileName))) ? entry.blobHash : null;
+    }
+
+    /**
+     * @return whether the entry of FILENAME holds without a stat, the monitor having seen no change of it. The
+     * monitor neither watches nor reports ignored paths, so a tracked file matching .gitletignore is stat-ed.
+     */
+    private boolean isWatched(String fileName) {
+        return monitorTrusted && !IgnoreRules.load().isIgnored(fileName);
+    }
+
+    /**
+     * Remember that the working file FILENAME had the content of the blob BLOBHASH when its stat data was STAT.
+     * The stat data must be taken before the content is read.
+     */
+    public void recordFile(String fileName, FileStat stat, ObjectId blobHash) {
+        ensureLoaded();
+        getStatCache().put(fileName, new StatEntry(stat, blobHash));
+        statCacheChanged = true;
+        changed(fileName);
+    }
+
+    /**
+     * Remember that the working file FILENAME, just written, has the content of the blob BLOBHASH.
+     */
+    public void recordFile(String fileName, ObjectId blobHash) {
+        FileStat stat = FileStat.of(WorkingTree.file(fileName));
+        if (stat != null) {
+            recordFile(fileName, stat, blobHash);
+        }
+    }
+
+    public void forgetFile(String fileName) {
+        ensureLoaded();
+        if (getStatCache().remove(fileName) != null) {
+            statCacheChanged = true;
+            changed(fileName);
+        }
+    }
+
+    /**
+     * Drop the hashes of every working file, so they are all read again.
+     */
+    public void forgetAllFiles() {
+        ensureLoaded();
+        new HashSet<>(getStatCache().keySet()).forEach(this::forgetFile);
+    }
+
+    /**
+     * Take in the answer of the file system monitor: the entries of the paths it saw change since the token of
+     * the index are dropped, the others can be trusted without a stat. When the monitor cannot tell what changed,
+     * the stat data is checked as usual, and the new token only counts once every tracked file was checked,
+     * see {@link #confirmMonitorToken()}.
+     */
+    public void useMonitor(FileSystemMonitor.Snapshot snapshot) {
+        ensureLoaded();
+        Set<String> changedPaths = snapshot.getChangedPaths();
+        if (changedPaths == null) {
+            monitorToken = null;
+            pendingMonitorToken = snapshot.getToken();
+            monitorTrusted = false;
+        } else {
+            changedPaths.forEach(this::forgetFile);
+            monitorToken = snapshot.getToken();
+            monitorTrusted = true;
+        }
+        statCacheChanged = true;
+        changed = true;
+        Trace.register("fsmonitor", () -> changedPaths == null ? "changes unknown, full stat"
+            : changedPaths.size() + " changed paths");
+    }
+
+    /**
+     * Make the last token of the monitor the one of the index, once every tracked file was checked against
+     * its stat data. The entries of the files that were not checked are dropped.
+     */
+    public void confirmMonitorToken() {
+        if (pendingMonitorToken != null) {
+            new HashSet<>(getStatCache().keySet()).stream()
+                .filter(fileName -> !getCheckedFiles().contains(fileName))
+                .forEach(this::forgetFile);
+            monitorToken = pendingMonitorToken;
+            pendingMonitorToken = null;
+            changed = true;
+        }
+    }
+
+    public String getMonitorToken() {
+        ensureLoaded();
+        return monitorToken;
+    }
+
+    /**
+     * @return whether files were hashed or recorded since the index was loaded
+     */
+    public boolean isStatCacheChanged() {
+        return statCacheChanged;
     }
 
     public boolean contains(String fileName) {
+        ensureLoaded();
         return stagedBlobs.containsKey(fileName) || removedBlobs.contains(fileName);
     }
 
     public boolean stageForAdditionContains(String fileName) {
+        ensureLoaded();
         return stagedBlobs.containsKey(fileName);
     }
 
     public boolean stageForRemovalContains(String fileName) {
+        ensureLoaded();
         return removedBlobs.contains(fileName);
     }
 
     public void clearStagedBlob(String fileName) {
+        ensureLoaded();
         join(OBJECTS_DIR, fileName).delete();
         stagedBlobs.remove(fileName);
         removedBlobs.remove(fileName);
+        changed(fileName);
     }
 
     public void clearAllStagedBlobs() {
-        stagedBlobs.keySet().forEach(fileName -> join(OBJECTS_DIR, fileName).delete());
+        ensureLoaded();
+        stagedBlobs.keySet().forEach(fileName -> {
+            join(OBJECTS_DIR, fileName).delete();
+            changed(fileName);
+        });
         stagedBlobs.clear();
     }
 
     public void removeAllMapping() {
+        ensureLoaded();
+        stagedBlobs.keySet().forEach(this::changed);
+        removedBlobs.forEach(this::changed);
         stagedBlobs.clear();
         removedBlobs.clear();
     }
 
     public void removeFromMapping(String fileName) {
+        ensureLoaded();
         stagedBlobs.remove(fileName);
         removedBlobs.remove(fileName);
+        changed(fileName);
     }
 
-    public HashSet<String> getRemovedBlobs() {
-        return removedBlobs;
+    public Set<String> getRemovedBlobs() {
+        ensureLoaded();
+        return Collections.unmodifiableSet(removedBlobs);
     }
 
-    public HashMap<String, String> getStagedBlobs() {
-        return stagedBlobs;
+    public Map<String, ObjectId> getStagedBlobs() {
+        ensureLoaded();
+        return Collections.unmodifiableMap(stagedBlobs);
     }
 
+    /**
+     * @return whether nothing is staged, answered from the header of the index while the entries are not read
+     */
     public boolean isEmpty() {
+        if (!loaded) {
+            return stagedCount == 0 && removedCount == 0;
+        }
         return stagedBlobs.isEmpty() && removedBlobs.isEmpty();
     }
 
     public Blob getStagedBlob(String fileName) {
-        String blobHash = stagedBlobs.get(fileName);
-        return blobHash == null ? null : RepositoryHelper.getBlob(blobHash);
+        ensureLoaded();
+        ObjectId blobHash = stagedBlobs.get(fileName);
+        return blobHash == null ? null : RepositoryHelper.getBlob(blobHash.toHex());
+    }
+
+    private static class StatEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private FileStat stat;
+        private ObjectId blobHash;
+
+        StatEntry(FileStat stat, ObjectId blobHash) {
+            this.stat = stat;
+            this.blobHash = blobHash;
+        }
+
+        /**
+         * Entries written with java serialization hold the blob hash as a hexadecimal string.
+         */
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            ObjectInputStream.GetField fields = in.readFields();
+            stat = (FileStat) fields.get("stat", null);
+            blobHash = ObjectId.fromHex((String) fields.get("blobHash", null));
+        }
     }
 }
@@ -0,0 +1,210 @@
+package gitlet.models;
+
+import gitlet.utils.ObjectId;
+import gitlet.utils.RepositoryHelper;
+import gitlet.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * @className: Tree
+ * @description: The files of a commit in one directory, sorted by name. A file entry points to a blob,
+ * a subdirectory entry points to the tree of that subdirectory. Trees are identified by the sha1 hash of
+ * their encoding, so a directory left untouched by a commit keeps its hash and is shared with the parent
+ * commit instead of being written again.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class Tree extends GitletObject {
+    public static final GitletObjectCodec<Tree> CODEC = new TreeCodec();
+    private static final long serialVersionUID = 1L;
+    private static final char SEPARATOR = '/';
+
+    private final SortedMap<String, Entry> entries;
+    private transient ObjectId hash;
+
+    Tree(ObjectId hash, SortedMap<String, Entry> entries) {
+        this.hash = hash;
+        this.entries = entries;
+    }
+
+    SortedMap<String, Entry> getEntries() {
+        return Collections.unmodifiableSortedMap(entries);
+    }
+
+    @Override
+    protected String sha1Hash() {
+        if (hash == null) {
+            hash = ObjectId.fromBytes(Utils.sha1Digest().digest(encode()));
+        }
+        return hash.toHex();
+    }
+
+    @Override
+    public byte[] encode() {
+        return CODEC.encode(this);
+    }
+
+    /**
+     * Store this tree unless an identical one is already stored.
+     *
+     * @return the hash of this tree
+     */
+    public ObjectId persist() {
+        byte[] encoded = encode();
+        hash = ObjectId.fromBytes(Utils.sha1Digest().digest(encoded));
+        RepositoryHelper.persistObject(hash.toHex(), encoded);
+        return hash;
+    }
+
+    /**
+     * @return the blob hash of the file at PATH, relative to this tree and separated by '/',
+     * or null if there is no such file
+     */
+    public ObjectId findBlob(String path) {
+        Tree tree = this;
+        int start = 0;
+        for (int slash = path.indexOf(SEPARATOR); slash >= 0; slash = path.indexOf(SEPARATOR, start)) {
+            Entry entry = tree.entries.get(path.substring(start, slash));
+            if (entry == null || !entry.isTree()) {
+                return null;
+            }
+            tree = read(entry.getHash());
+            start = slash + 1;
+        }
+
+        Entry entry = tree.entries.get(path.substring(start));
+        return entry == null || entry.isTree() ? null : entry.getHash();
+    }
+
+    /**
+     * Add every file below this tree to FILES, by path prefixed with PREFIX.
+     */
+    public void flatten(String prefix, Map<String, ObjectId> files) {
+        entries.forEach((name, entry) -> {
+            if (entry.isTree()) {
+                read(entry.getHash()).flatten(prefix + name + SEPARATOR, files);
+            } else {
+                files.put(prefix + name, entry.getHash());
+            }
+        });
+    }
+
+    /**
+     * Collect the files that differ between the trees OLDHASH and NEWHASH. Subtrees with the same hash in both
+     * are skipped without being read.
+     *
+     * @param changes receives the blob hash in the new tree of every file that differs,
+     *                null for a file only in the old tree
+     */
+    public static void diff(ObjectId oldHash, ObjectId newHash, Map<String, ObjectId> changes) {
+        if (!oldHash.equals(newHash)) {
+            diff(read(oldHash), read(newHash), "", changes);
+        }
+    }
+
+    private static void diff(Tree oldTree, Tree newTree, String prefix, Map<String, ObjectId> changes) {
+        SortedMap<String, Entry> names = new TreeMap<>(oldTree.entries);
+        names.putAll(newTree.entries);
+        for (String name : names.keySet()) {
+            Entry oldEntry = oldTree.entries.get(name);
+            Entry newEntry = newTree.entries.get(name);
+            if (oldEntry != null && newEntry != null && oldEntry.isTree() == newEntry.isTree()
+                && oldEntry.getHash().equals(newEntry.getHash())) {
+                continue;
+            }
+
+            String path = prefix + name;
+            if (oldEntry != null && newEntry != null && oldEntry.isTree() && newEntry.isTree()) {
+                diff(read(oldEntry.getHash()), read(newEntry.getHash()), path + SEPARATOR, changes);
+                continue;
+            }
+            if (oldEntry != null && oldEntry.isTree()) {
+                Map<String, ObjectId> removed = new HashMap<>();
+                read(oldEntry.getHash()).flatten(path + SEPARATOR, removed);
+                removed.keySet().forEach(file -> changes.put(file, null));
+            } else if (oldEntry != null) {
+                changes.put(path, null);
+            }
+            if (newEntry != null && newEntry.isTree()) {
+                read(newEntry.getHash()).flatten(path + SEPARATOR, changes);
+            } else if (newEntry != null) {
+                changes.put(path, newEntry.getHash());
+            }
+        }
+    }
+
+    /**
+     * Write the tree of BASE with CHANGES applied, storing only the trees of the directories that changed.
+     *
+     * @param baseHash the hash of the tree to start from, or null to start from an empty tree
+     * @param changes  new blob hashes by file path, a null hash removes the file
+     * @return the hash of the new root tree
+     */
+    public static ObjectId write(ObjectId baseHash, Map<String, ObjectId> changes) {
+        Tree base = baseHash == null ? null : read(baseHash);
+        return apply(base, changes).persist();
+    }
+
+    private static Tree apply(Tree base, Map<String, ObjectId> changes) {
+        SortedMap<String, Entry> entries = base == null ? new TreeMap<>() : new TreeMap<>(base.entries);
+        Map<String, Map<String, ObjectId>> subdirectoryChanges = new HashMap<>();
+        changes.forEach((path, blobHash) -> {
+            int slash = path.indexOf(SEPARATOR);
+            if (slash >= 0) {
+                subdirectoryChanges.computeIfAbsent(path.substring(0, slash), name -> new HashMap<>())
+                    .put(path.substring(slash + 1), blobHash);
+            } else if (blobHash != null) {
+                entries.put(path, new Entry(false, blobHash));
+            } else if (entries.containsKey(path) && !entries.get(path).isTree()) {
+                entries.remove(path);
+            }
+        });
+
+        subdirectoryChanges.forEach((name, subChanges) -> {
+            Entry entry = entries.get(name);
+            boolean isDirectory = entry != null && entry.isTree();
+            Tree subtree = apply(isDirectory ? read(entry.getHash()) : null, subChanges);
+            if (subtree.entries.isEmpty()) {
+                if (isDirectory) {
+                    entries.remove(name);
+                }
+            } else {
+                entries.put(name, new Entry(true, subtree.persist()));
+            }
+        });
+        return new Tree(null, entries);
+    }
+
+    private static Tree read(ObjectId hash) {
+        return RepositoryHelper.getTree(hash.toHex());
+    }
+
+    /**
+     * A file or a subdirectory of a tree.
+     */
+    static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean tree;
+        private final ObjectId hash;
+
+        Entry(boolean tree, ObjectId hash) {
+            this.tree = tree;
+            this.hash = hash;
+        }
+
+        boolean isTree() {
+            return tree;
+        }
+
+        ObjectId getHash() {
+            return hash;
+        }
+    }
+}
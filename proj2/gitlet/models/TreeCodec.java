@@ -0,0 +1,57 @@
+package gitlet.models;
+
+import gitlet.utils.ObjectId;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * @className: TreeCodec
+ * @description: Version 1 layout of a tree, after the common header:
+ * - entry count (varint)
+ * - each entry sorted by name: kind (1 byte, 'b' blob or 't' tree), name (varint length + utf-8),
+ *   hash as 20 raw bytes
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+class TreeCodec extends BinaryObjectCodec<Tree> {
+    private static final int VERSION = 1;
+    private static final byte BLOB_ENTRY = 'b';
+    private static final byte TREE_ENTRY = 't';
+
+    TreeCodec() {
+        super('t', Tree.class);
+    }
+
+    @Override
+    protected int version() {
+        return VERSION;
+    }
+
+    @Override
+    protected void encodeBody(Tree tree, DataOutputStream out) throws IOException {
+        SortedMap<String, Tree.Entry> entries = tree.getEntries();
+        writeVarInt(out, entries.size());
+        for (Map.Entry<String, Tree.Entry> entry : entries.entrySet()) {
+            out.writeByte(entry.getValue().isTree() ? TREE_ENTRY : BLOB_ENTRY);
+            writeString(out, entry.getKey());
+            writeId(out, entry.getValue().getHash());
+        }
+    }
+
+    @Override
+    protected Tree decodeBody(String hash, int version, DataInputStream in) throws IOException {
+        int count = (int) readVarInt(in);
+        SortedMap<String, Tree.Entry> entries = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            boolean isTree = in.readByte() == TREE_ENTRY;
+            String name = readString(in);
+            entries.put(name, new Tree.Entry(isTree, readId(in)));
+        }
+        return new Tree(ObjectId.fromHex(hash), entries);
+    }
+}
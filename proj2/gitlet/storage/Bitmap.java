@@ -0,0 +1,145 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @className: Bitmap
+ * @description: Set of commit-graph positions, one bit per commit. It is operated on as plain 64 bit words
+ * in memory and stored compressed with EWAH run-length encoding: a marker word, holding the bit and the
+ * number of the clean (all 0 or all 1) words that follow and the number of literal words after them,
+ * then those literal words. The history of a branch sets long runs of ones, so it compresses well.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class Bitmap {
+    private static final long RUN_LENGTH_MASK = 0xffffffffL;
+    private static final int LITERAL_COUNT_SHIFT = 33;
+    private static final long MAX_LITERAL_COUNT = (1L << 31) - 1;
+
+    private long[] words;
+
+    public Bitmap(int size) {
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    private Bitmap(long[] words) {
+        this.words = words;
+    }
+
+    public boolean get(int position) {
+        int index = position >>> 6;
+        return index < words.length && (words[index] & (1L << position)) != 0;
+    }
+
+    public void set(int position) {
+        int index = position >>> 6;
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, index + 1);
+        }
+        words[index] |= 1L << position;
+    }
+
+    /**
+     * Add every position of OTHER to this bitmap.
+     */
+    public void or(Bitmap other) {
+        if (other.words.length > words.length) {
+            words = Arrays.copyOf(words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of positions in this bitmap that are not in OTHER
+     */
+    public int andNotCardinality(Bitmap other) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            long otherWord = i < other.words.length ? other.words[i] : 0;
+            count += Long.bitCount(words[i] & ~otherWord);
+        }
+        return count;
+    }
+
+    public byte[] encode() {
+        List<Long> compressed = new ArrayList<>();
+        int i = 0;
+        while (i < words.length) {
+            long clean = words[i];
+            long runLength = 0;
+            if (clean == 0 || clean == -1L) {
+                while (i < words.length && words[i] == clean && runLength < RUN_LENGTH_MASK) {
+                    runLength++;
+                    i++;
+                }
+            }
+
+            int literalStart = i;
+            while (i < words.length && words[i] != 0 && words[i] != -1L && i - literalStart < MAX_LITERAL_COUNT) {
+                i++;
+            }
+
+            long runBit = runLength > 0 && clean == -1L ? 1 : 0;
+            compressed.add(runBit | (runLength << 1) | ((long) (i - literalStart) << LITERAL_COUNT_SHIFT));
+            for (int k = literalStart; k < i; k++) {
+                compressed.add(words[k]);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(words.length);
+            out.writeInt(compressed.size());
+            for (long word : compressed) {
+                out.writeLong(word);
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot encode bitmap: " + e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Bitmap decode(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            long[] words = new long[in.readInt()];
+            int remaining = in.readInt();
+            int i = 0;
+            while (remaining-- > 0) {
+                long marker = in.readLong();
+                long clean = (marker & 1) == 0 ? 0 : -1L;
+                long runLength = (marker >>> 1) & RUN_LENGTH_MASK;
+                for (long k = 0; k < runLength; k++) {
+                    words[i++] = clean;
+                }
+
+                long literalCount = marker >>> LITERAL_COUNT_SHIFT;
+                for (long k = 0; k < literalCount; k++) {
+                    words[i++] = in.readLong();
+                    remaining--;
+                }
+            }
+            return new Bitmap(words);
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            throw new GitletException("Corrupt bitmap: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @className: BitmapIndex
+ * @description: Reachability bitmaps of commits, in .gitlet/bitmaps, over the positions of the commit graph.
+ * - header : magic, version
+ * - then one record per commit with a bitmap: 20 byte commit id, graph position, bitmap length, encoded bitmap
+ * A bitmap is computed the first time the commits reachable from a commit are asked for, typically
+ * a branch tip, and stored for good: history never changes, so it never goes stale. Along the way, one
+ * commit every SELECTION_INTERVAL generations also gets its bitmap, so that a walk from a commit that has
+ * none stops at most that many generations down, where it reuses a stored one.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class BitmapIndex {
+    static final int MAGIC = 0x47424d50; // "GBMP"
+    static final int VERSION = 1;
+    static final int SELECTION_INTERVAL = 256;
+
+    private final File bitmapFile;
+    private final CommitGraph graph;
+    private Map<Integer, byte[]> encoded;
+    /**
+     * Length of the complete records read from the file, anything after it is a torn record
+     */
+    private long validLength;
+    private final Map<Integer, Bitmap> decoded = new HashMap<>();
+
+    public BitmapIndex(File bitmapFile, CommitGraph graph) {
+        this.bitmapFile = bitmapFile;
+        this.graph = graph;
+    }
+
+    /**
+     * @return the positions of the commits reachable from the commit at POSITION, itself included
+     */
+    public Bitmap reachable(int position) {
+        Bitmap bitmap = stored(position);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        List<Integer> walked = new ArrayList<>();
+        bitmap = compute(position, walked);
+        store(position, bitmap);
+
+        // positions grow from parents to children, so the selected commits are computed from the oldest
+        Collections.sort(walked);
+        for (int commit : walked) {
+            if (commit != position && graph.generation(commit) % SELECTION_INTERVAL == 0) {
+                store(commit, compute(commit, null));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Walk down from POSITION until the commits that already have a bitmap, collecting in WALKED
+     * the commits that were visited one by one.
+     */
+    private Bitmap compute(int position, List<Integer> walked) {
+        Bitmap bitmap = new Bitmap(graph.size());
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(position);
+        while (!pending.isEmpty()) {
+            int commit = pending.pop();
+            if (bitmap.get(commit)) {
+                continue;
+            }
+
+            Bitmap known = commit == position ? null : stored(commit);
+            if (known != null) {
+                bitmap.or(known);
+                continue;
+            }
+            bitmap.set(commit);
+            if (walked != null) {
+                walked.add(commit);
+            }
+            graph.parents(commit).forEach(pending::push);
+        }
+        return bitmap;
+    }
+
+    private Bitmap stored(int position) {
+        Bitmap bitmap = decoded.get(position);
+        if (bitmap == null) {
+            byte[] bytes = load().get(position);
+            if (bytes != null) {
+                bitmap = Bitmap.decode(bytes);
+                decoded.put(position, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    private void store(int position, Bitmap bitmap) {
+        byte[] bytes = bitmap.encode();
+        load();
+        boolean created = !bitmapFile.isFile();
+        if (!created && bitmapFile.length() != validLength) {
+            truncate();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(bitmapFile, true)))) {
+            if (created) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            out.write(Utils.fromHex(graph.idAt(position)));
+            out.writeInt(position);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + bitmapFile.getName() + ": " + e.getMessage());
+        }
+        encoded.put(position, bytes);
+        decoded.put(position, bitmap);
+        validLength = bitmapFile.length();
+    }
+
+    private void truncate() {
+        try (FileChannel channel = FileChannel.open(bitmapFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+        } catch (IOException e) {
+            throw new GitletException("Cannot repair " + bitmapFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private Map<Integer, byte[]> load() {
+        if (encoded != null) {
+            return encoded;
+        }
+
+        encoded = new HashMap<>();
+        validLength = 0;
+        if (!bitmapFile.isFile()) {
+            return encoded;
+        }
+        try (InputStream stream = Files.newInputStream(bitmapFile.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new GitletException("Unsupported bitmap index " + bitmapFile.getName());
+            }
+            validLength = 8;
+            byte[] id = new byte[CommitGraph.ID_LENGTH];
+            while (true) {
+                in.readFully(id);
+                int position = in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                // a bitmap is only kept while the graph still holds the same commit at its position
+                if (position < graph.size() && Arrays.equals(id, Utils.fromHex(graph.idAt(position)))) {
+                    encoded.put(position, bytes);
+                }
+                validLength += id.length + 8 + bytes.length;
+            }
+        } catch (EOFException e) {
+            // end of the records, a torn last record is ignored
+            return encoded;
+        } catch (IOException e) {
+            throw new GitletException("Cannot read " + bitmapFile.getName() + ": " + e.getMessage());
+        }
+    }
+}
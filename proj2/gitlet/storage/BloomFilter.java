@@ -0,0 +1,74 @@
+package gitlet.storage;
+
+/**
+ * @className: BloomFilter
+ * @description: A set of object ids that answers "absent" or "maybe present", and is never wrong about absent.
+ * Object ids are sha1 hashes, already uniformly distributed, so the bits of an id are picked from the id itself:
+ * two of its longs drive the double hashing of PROBES positions, without hashing it again. BITS_PER_ID bits per
+ * id and PROBES probes give about one wrong "maybe" in a hundred. Adding more ids than it was sized for raises
+ * that rate; isFull tells when it should be rebuilt larger. Not synchronized.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class BloomFilter {
+    private static final int BITS_PER_ID = 10;
+    private static final int PROBES = 7;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int capacity;
+    private int count;
+
+    /**
+     * A filter sized for EXPECTEDIDS ids, and at least MIN_CAPACITY.
+     */
+    public BloomFilter(int expectedIds) {
+        this.capacity = Math.max(expectedIds, MIN_CAPACITY);
+        this.bits = new long[(int) (((long) capacity * BITS_PER_ID + 63) / 64)];
+        this.bitCount = (long) bits.length * 64;
+    }
+
+    /**
+     * @param id a 20 byte object id
+     */
+    public void add(byte[] id) {
+        long h1 = readLong(id, 0);
+        long h2 = readLong(id, 8);
+        for (int i = 0; i < PROBES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count++;
+    }
+
+    /**
+     * @return false if ID was never added, true if it may have been
+     */
+    public boolean mightContain(byte[] id) {
+        long h1 = readLong(id, 0);
+        long h2 = readLong(id, 8);
+        for (int i = 0; i < PROBES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether more ids were added than the filter was sized for
+     */
+    public boolean isFull() {
+        return count > capacity;
+    }
+
+    private static long readLong(byte[] id, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (id[i] & 0xff);
+        }
+        return value;
+    }
+}
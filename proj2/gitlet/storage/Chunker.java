@@ -0,0 +1,99 @@
+package gitlet.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * @className: Chunker
+ * @description: Content-defined chunking with the FastCDC gear hash. A chunk boundary is placed where
+ * the rolling fingerprint of the last bytes matches a mask, so an edit only moves the boundaries close
+ * to it and every other chunk keeps its bytes, hence its hash. Chunks are between 16 KiB and 256 KiB,
+ * 64 KiB on average, using the stricter mask before the average size and the looser one after it
+ * (normalized chunking).
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class Chunker {
+    static final int MIN_SIZE = 16 * 1024;
+    static final int AVERAGE_SIZE = 64 * 1024;
+    static final int MAX_SIZE = 256 * 1024;
+    private static final long MASK_STRICT = ((1L << 18) - 1) << (64 - 18);
+    private static final long MASK_LOOSE = ((1L << 14) - 1) << (64 - 14);
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // splitmix64, so the table, hence every chunk boundary, is the same on every machine
+        long seed = 0x6769746c6574L;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9e3779b97f4a7c15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[MAX_SIZE];
+    private int buffered;
+    private boolean exhausted;
+
+    public Chunker(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next chunk of the stream, or null once the stream is exhausted
+     */
+    public byte[] next() throws IOException {
+        fill();
+        if (buffered == 0) {
+            return null;
+        }
+
+        int length = boundary(buffer, buffered);
+        byte[] chunk = Arrays.copyOf(buffer, length);
+        System.arraycopy(buffer, length, buffer, 0, buffered - length);
+        buffered -= length;
+        return chunk;
+    }
+
+    private void fill() throws IOException {
+        while (!exhausted && buffered < buffer.length) {
+            int read = in.read(buffer, buffered, buffer.length - buffered);
+            if (read < 0) {
+                exhausted = true;
+            } else {
+                buffered += read;
+            }
+        }
+    }
+
+    /**
+     * @return the length of the chunk starting at the beginning of DATA, which holds LENGTH bytes
+     */
+    static int boundary(byte[] data, int length) {
+        if (length <= MIN_SIZE) {
+            return length;
+        }
+
+        int end = Math.min(length, MAX_SIZE);
+        int normal = Math.min(end, AVERAGE_SIZE);
+        long fingerprint = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[i] & 0xff];
+            if ((fingerprint & MASK_STRICT) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[i] & 0xff];
+            if ((fingerprint & MASK_LOOSE) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+}
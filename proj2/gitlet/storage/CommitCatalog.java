@@ -0,0 +1,257 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.function.Predicate;
+
+/**
+ * @className: CommitCatalog
+ * @description: Every commit ever written, in write order, so that global-log and find never list
+ * or decode commits. Two append-only files under .gitlet/logs:
+ * - commits  : one fixed-width record per commit: 20 byte commit id, commit time in milliseconds,
+ *              20 byte first and second parent ids (zeros for none), offset and length of its message
+ * - messages : the messages, UTF-8 encoded, one after the other
+ * A message is written before the record pointing to it, so a complete record always has its message.
+ * Commits are written when they are created, so reading the records backward gives the newest first.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class CommitCatalog {
+    static final int ID_LENGTH = PackFile.ID_LENGTH;
+    static final int RECORD_SIZE = ID_LENGTH + 8 + 2 * ID_LENGTH + 8 + 4;
+    private static final int RECORDS_PER_READ = 256;
+    private static final byte[] NO_PARENT = new byte[ID_LENGTH];
+
+    private final File recordFile;
+    private final File messageFile;
+
+    public CommitCatalog(File logsDir) {
+        this.recordFile = Utils.join(logsDir, "commits");
+        this.messageFile = Utils.join(logsDir, "messages");
+    }
+
+    public boolean exists() {
+        return recordFile.isFile();
+    }
+
+    /**
+     * Append a commit to the catalog.
+     *
+     * @param firstParentHash  the hash of its first parent, empty for the initial commit
+     * @param secondParentHash the hash of its second parent, empty unless it is a merge commit
+     */
+    public void add(String hash, Date timeStamp, String firstParentHash, String secondParentHash, String message) {
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        long messageOffset = messageFile.length();
+        try (FileOutputStream out = new FileOutputStream(messageFile, true)) {
+            out.write(messageBytes);
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + messageFile.getName() + ": " + e.getMessage());
+        }
+
+        long length = recordFile.length();
+        if (length % RECORD_SIZE != 0) {
+            truncate(length - length % RECORD_SIZE);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(recordFile, true)))) {
+            out.write(Utils.fromHex(hash));
+            out.writeLong(timeStamp.getTime());
+            out.write(firstParentHash.isEmpty() ? NO_PARENT : Utils.fromHex(firstParentHash));
+            out.write(secondParentHash.isEmpty() ? NO_PARENT : Utils.fromHex(secondParentHash));
+            out.writeLong(messageOffset);
+            out.writeInt(messageBytes.length);
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + recordFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of commits in the catalog
+     */
+    public long size() {
+        return exists() ? recordFile.length() / RECORD_SIZE : 0;
+    }
+
+    /**
+     * Hand the commits at POSITIONS to VISITOR, in the order given, until it returns false.
+     * Positions count the commits in write order from 0.
+     */
+    public void visitPositions(long[] positions, Predicate<Entry> visitor) {
+        if (positions.length == 0) {
+            return;
+        }
+
+        try (FileChannel records = FileChannel.open(recordFile.toPath(), StandardOpenOption.READ);
+             FileChannel messages = FileChannel.open(messageFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            for (long position : positions) {
+                record.clear();
+                readFully(records, record, position * RECORD_SIZE);
+                if (!visitor.test(readEntry(record, 0, position, messages))) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot read " + recordFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hand the commits from position FROM to VISITOR, the oldest first, until it returns false.
+     */
+    public void visitOldestFirst(long from, Predicate<Entry> visitor) {
+        if (!exists()) {
+            return;
+        }
+
+        try (FileChannel records = FileChannel.open(recordFile.toPath(), StandardOpenOption.READ);
+             FileChannel messages = FileChannel.open(messageFile.toPath(), StandardOpenOption.READ)) {
+            long end = records.size() / RECORD_SIZE;
+            ByteBuffer block = ByteBuffer.allocate(RECORDS_PER_READ * RECORD_SIZE);
+            for (long start = from; start < end; start += RECORDS_PER_READ) {
+                int count = (int) Math.min(RECORDS_PER_READ, end - start);
+                block.clear().limit(count * RECORD_SIZE);
+                readFully(records, block, start * RECORD_SIZE);
+
+                for (int i = 0; i < count; i++) {
+                    if (!visitor.test(readEntry(block, i * RECORD_SIZE, start + i, messages))) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot read " + recordFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hand every commit to VISITOR, the newest first, reading the catalog in blocks from its end
+     * so memory stays constant whatever the number of commits. Stops as soon as VISITOR returns false.
+     */
+    public void visitNewestFirst(Predicate<Entry> visitor) {
+        if (!exists()) {
+            return;
+        }
+
+        try (FileChannel records = FileChannel.open(recordFile.toPath(), StandardOpenOption.READ);
+             FileChannel messages = FileChannel.open(messageFile.toPath(), StandardOpenOption.READ)) {
+            // a torn last record, left by an interrupted write, is ignored
+            long end = records.size() / RECORD_SIZE;
+            ByteBuffer block = ByteBuffer.allocate(RECORDS_PER_READ * RECORD_SIZE);
+            while (end > 0) {
+                long start = Math.max(0, end - RECORDS_PER_READ);
+                block.clear().limit((int) (end - start) * RECORD_SIZE);
+                readFully(records, block, start * RECORD_SIZE);
+
+                for (int i = (int) (end - start) - 1; i >= 0; i--) {
+                    if (!visitor.test(readEntry(block, i * RECORD_SIZE, start + i, messages))) {
+                        return;
+                    }
+                }
+                end = start;
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot read " + recordFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static Entry readEntry(ByteBuffer block, int offset, long position, FileChannel messages)
+        throws IOException {
+        ByteBuffer record = block.duplicate();
+        record.position(offset);
+        String hash = readHash(record);
+        Date timeStamp = new Date(record.getLong());
+        String firstParentHash = readHash(record);
+        String secondParentHash = readHash(record);
+        long messageOffset = record.getLong();
+        ByteBuffer message = ByteBuffer.allocate(record.getInt());
+        readFully(messages, message, messageOffset);
+        return new Entry(position, hash, timeStamp, firstParentHash, secondParentHash,
+            new String(message.array(), StandardCharsets.UTF_8));
+    }
+
+    private static String readHash(ByteBuffer record) {
+        byte[] id = new byte[ID_LENGTH];
+        record.get(id);
+        return Arrays.equals(id, NO_PARENT) ? "" : Utils.toHex(id);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+    }
+
+    private void truncate(long length) {
+        try (FileChannel channel = FileChannel.open(recordFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        } catch (IOException e) {
+            throw new GitletException("Cannot repair " + recordFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A commit as recorded in the catalog.
+     */
+    public static class Entry {
+        private final long position;
+        private final String hash;
+        private final Date timeStamp;
+        private final String firstParentHash;
+        private final String secondParentHash;
+        private final String message;
+
+        Entry(long position, String hash, Date timeStamp, String firstParentHash, String secondParentHash,
+              String message) {
+            this.position = position;
+            this.hash = hash;
+            this.timeStamp = timeStamp;
+            this.firstParentHash = firstParentHash;
+            this.secondParentHash = secondParentHash;
+            this.message = message;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public Date getTimeStamp() {
+            return timeStamp;
+        }
+
+        public String getFirstParentHash() {
+            return firstParentHash;
+        }
+
+        public String getSecondParentHash() {
+            return secondParentHash;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isMergeCommit() {
+            return !secondParentHash.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * @className: CommitGraph
+ * @description: Shape of the history, in .gitlet/commit-graph, so that walks never decode a commit:
+ * - header : magic, version
+ * - then one fixed-width record per commit, appended when the commit is written, parents first:
+ *   20 byte commit id, first parent position, second parent position (-1 for none),
+ *   generation number, commit time in milliseconds.
+ * The generation number of a commit is one more than the largest generation of its parents, so a commit
+ * can only be an ancestor of commits with a larger generation; merge-base walks use it to stop early.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class CommitGraph {
+    static final int MAGIC = 0x47434752; // "GCGR"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int ID_LENGTH = PackFile.ID_LENGTH;
+    static final int RECORD_SIZE = ID_LENGTH + 4 + 4 + 4 + 8;
+    static final int NONE = -1;
+
+    private static final int FROM_FIRST = 1;
+    private static final int FROM_SECOND = 2;
+    private static final int STALE = 4;
+
+    private final File graphFile;
+    private boolean loaded;
+    /**
+     * The records in the file when it was loaded, then MAPPED of them
+     */
+    private MappedByteBuffer graph;
+    private int mapped;
+    /**
+     * The records appended since, kept in memory rather than mapping the file again after each append
+     */
+    private ByteBuffer appended = ByteBuffer.allocate(0);
+    private int count;
+    /**
+     * Position of every commit of the graph, filled when the file is loaded and on each append; the file
+     * itself is only ordered by write time
+     */
+    private final Map<ObjectId, Integer> positions = new HashMap<>();
+
+    public CommitGraph(File graphFile) {
+        this.graphFile = graphFile;
+    }
+
+    public boolean exists() {
+        return graphFile.isFile();
+    }
+
+    /**
+     * @return the position of the commit HASH, or -1 if it is not in the graph
+     */
+    public int find(String hash) {
+        load();
+        Integer position = positions.get(ObjectId.fromHex(hash));
+        return position == null ? NONE : position;
+    }
+
+    public boolean contains(String hash) {
+        return find(hash) != NONE;
+    }
+
+    /**
+     * Append the commit HASH, whose parents must already be in the graph.
+     *
+     * @param parentHashes the hashes of its parents, at most two
+     * @param time         its commit time in milliseconds
+     */
+    public void add(String hash, List<String> parentHashes, long time) {
+        load();
+        ObjectId id = ObjectId.fromHex(hash);
+        if (positions.containsKey(id)) {
+            return;
+        }
+
+        int[] parents = {NONE, NONE};
+        int generation = 1;
+        for (int i = 0; i < parentHashes.size(); i++) {
+            parents[i] = find(parentHashes.get(i));
+            if (parents[i] == NONE) {
+                throw new GitletException("Parent " + parentHashes.get(i) + " is not in the commit graph");
+            }
+            generation = Math.max(generation, generation(parents[i]) + 1);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(id.toBytes()).putInt(parents[0]).putInt(parents[1]).putInt(generation).putLong(time);
+
+        boolean created = !graphFile.isFile();
+        if (!created && graphFile.length() != recordOffset(count)) {
+            truncate();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(graphFile, true)))) {
+            if (created) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            out.write(record.array());
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + graphFile.getName() + ": " + e.getMessage());
+        }
+
+        if (appended.remaining() < RECORD_SIZE) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(RECORD_SIZE * 16, appended.capacity() * 2));
+            appended.flip();
+            appended = grown.put(appended);
+        }
+        appended.put(record.array());
+        positions.put(id, count);
+        count++;
+    }
+
+    private void truncate() {
+        try (FileChannel channel = FileChannel.open(graphFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(recordOffset(count));
+        } catch (IOException e) {
+            throw new GitletException("Cannot repair " + graphFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Find the best common ancestor of the commits HASH1 and HASH2, both in the graph, without
+     * decoding any commit. The walk goes down from both tips in decreasing generation order, painting
+     * each commit with the side it is reachable from; a commit painted from both sides is a common
+     * ancestor, and everything below it is marked stale. The walk stops once only stale commits are left.
+     *
+     * @return the hash of the most recent common ancestor, or null if the commits share no history
+     */
+    public String mergeBase(String hash1, String hash2) {
+        int first = find(hash1);
+        int second = find(hash2);
+        if (first == NONE || second == NONE) {
+            throw new GitletException("Commit is not in the commit graph");
+        }
+        if (first == second) {
+            return hash1;
+        }
+
+        Map<Integer, Integer> flags = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+            Comparator.comparingInt(this::generation).thenComparingLong(this::time).reversed());
+        flags.put(first, FROM_FIRST);
+        flags.put(second, FROM_SECOND);
+        queue.add(first);
+        queue.add(second);
+
+        // a parent is popped after all its children, which have larger generations, so a commit is queued
+        // at most once and its flags are final when it is popped; ACTIVE counts the queued non stale commits
+        int active = 2;
+        int best = NONE;
+        while (active > 0) {
+            int position = queue.poll();
+            int flag = flags.get(position);
+            if ((flag & STALE) == 0) {
+                active--;
+            }
+            if ((flag & (FROM_FIRST | FROM_SECOND)) == (FROM_FIRST | FROM_SECOND) && (flag & STALE) == 0) {
+                if (best == NONE || time(position) > time(best)) {
+                    best = position;
+                }
+                flag |= STALE;
+            }
+
+            for (int parent : parents(position)) {
+                Integer parentFlag = flags.get(parent);
+                if (parentFlag == null) {
+                    flags.put(parent, flag);
+                    queue.add(parent);
+                    if ((flag & STALE) == 0) {
+                        active++;
+                    }
+                } else if ((parentFlag | flag) != parentFlag) {
+                    flags.put(parent, parentFlag | flag);
+                    if ((flag & STALE) != 0 && (parentFlag & STALE) == 0) {
+                        active--;
+                    }
+                }
+            }
+        }
+        return best == NONE ? null : idAt(best);
+    }
+
+    /**
+     * @return the number of commits in the graph
+     */
+    public int size() {
+        load();
+        return count;
+    }
+
+    public int generation(int position) {
+        load();
+        return records(position).getInt(offsetOf(position) + ID_LENGTH + 8);
+    }
+
+    public long time(int position) {
+        load();
+        return records(position).getLong(offsetOf(position) + ID_LENGTH + 12);
+    }
+
+    public List<Integer> parents(int position) {
+        load();
+        List<Integer> parents = new ArrayList<>(2);
+        ByteBuffer records = records(position);
+        int offset = offsetOf(position) + ID_LENGTH;
+        for (int i = 0; i < 2; i++) {
+            int parent = records.getInt(offset + 4 * i);
+            if (parent != NONE) {
+                parents.add(parent);
+            }
+        }
+        return parents;
+    }
+
+    public String idAt(int position) {
+        load();
+        return readId(records(position), offsetOf(position)).toHex();
+    }
+
+    /**
+     * @return the buffer holding the record at POSITION, the mapped file or the records appended since
+     */
+    private ByteBuffer records(int position) {
+        return position < mapped ? graph : appended;
+    }
+
+    private int offsetOf(int position) {
+        return position < mapped ? recordOffset(position) : (position - mapped) * RECORD_SIZE;
+    }
+
+    private static ObjectId readId(ByteBuffer records, int offset) {
+        byte[] id = new byte[ID_LENGTH];
+        ByteBuffer record = records.duplicate();
+        record.position(offset);
+        record.get(id);
+        return ObjectId.fromBytes(id);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!graphFile.isFile()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(graphFile.toPath(), StandardOpenOption.READ)) {
+            graph = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GitletException("Cannot open " + graphFile.getName() + ": " + e.getMessage());
+        }
+        if (graph.getInt(0) != MAGIC || graph.getInt(4) != VERSION) {
+            throw new GitletException("Unsupported commit graph " + graphFile.getName());
+        }
+        // a torn last record, left by an interrupted write, is ignored
+        count = (graph.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        mapped = count;
+        for (int position = 0; position < count; position++) {
+            positions.put(readId(graph, recordOffset(position)), position);
+        }
+    }
+
+    private static int recordOffset(int position) {
+        return HEADER_SIZE + position * RECORD_SIZE;
+    }
+}
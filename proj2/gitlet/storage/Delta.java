@@ -0,0 +1,154 @@
+package gitlet.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @className: Delta
+ * @description: Binary delta between two versions of a file, as a list of copy/insert operations:
+ * - varint base length, varint target length
+ * - then operations until the end of the delta:
+ *   COPY   : 1 byte tag, varint offset in the base, varint length
+ *   INSERT : 1 byte tag, varint length, the literal bytes
+ * The base is indexed by the hash of its aligned 16 byte blocks, the target is scanned with a rolling
+ * hash of the same width, and every verified match is extended in both directions into a copy.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class Delta {
+    private static final int BLOCK = 16;
+    private static final int PRIME = 31;
+    private static final int COPY = 1;
+    private static final int INSERT = 0;
+
+    public static byte[] create(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarInt(out, base.length);
+        writeVarInt(out, target.length);
+
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int offset = 0; offset + BLOCK <= base.length; offset += BLOCK) {
+            blocks.putIfAbsent(hash(base, offset), offset);
+        }
+
+        int highPower = 1;
+        for (int i = 1; i < BLOCK; i++) {
+            highPower *= PRIME;
+        }
+
+        int insertStart = 0;
+        int i = 0;
+        int hash = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer candidate = blocks.get(hash);
+            if (candidate != null && matches(base, candidate, target, i)) {
+                int baseStart = candidate;
+                int targetStart = i;
+                while (targetStart > insertStart && baseStart > 0 && base[baseStart - 1] == target[targetStart - 1]) {
+                    baseStart--;
+                    targetStart--;
+                }
+
+                int length = i - targetStart + BLOCK;
+                while (targetStart + length < target.length && baseStart + length < base.length
+                    && base[baseStart + length] == target[targetStart + length]) {
+                    length++;
+                }
+
+                writeInsert(out, target, insertStart, targetStart);
+                out.write(COPY);
+                writeVarInt(out, baseStart);
+                writeVarInt(out, length);
+
+                i = targetStart + length;
+                insertStart = i;
+                if (i + BLOCK <= target.length) {
+                    hash = hash(target, i);
+                }
+            } else {
+                if (i + BLOCK < target.length) {
+                    hash = (hash - target[i] * highPower) * PRIME + target[i + BLOCK];
+                }
+                i++;
+            }
+        }
+        writeInsert(out, target, insertStart, target.length);
+
+        return out.toByteArray();
+    }
+
+    public static byte[] apply(byte[] base, byte[] delta) {
+        int[] position = {0};
+        int baseLength = (int) readVarInt(delta, position);
+        if (baseLength != base.length) {
+            throw new IllegalArgumentException("delta does not apply to this base");
+        }
+
+        byte[] target = new byte[(int) readVarInt(delta, position)];
+        int written = 0;
+        while (position[0] < delta.length) {
+            int tag = delta[position[0]++];
+            if (tag == COPY) {
+                int offset = (int) readVarInt(delta, position);
+                int length = (int) readVarInt(delta, position);
+                System.arraycopy(base, offset, target, written, length);
+                written += length;
+            } else {
+                int length = (int) readVarInt(delta, position);
+                System.arraycopy(delta, position[0], target, written, length);
+                position[0] += length;
+                written += length;
+            }
+        }
+
+        if (written != target.length) {
+            throw new IllegalArgumentException("truncated delta");
+        }
+        return target;
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] target, int from, int to) {
+        if (to > from) {
+            out.write(INSERT);
+            writeVarInt(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    private static boolean matches(byte[] base, int baseOffset, byte[] target, int targetOffset) {
+        for (int k = 0; k < BLOCK; k++) {
+            if (base[baseOffset + k] != target[targetOffset + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int offset) {
+        int hash = 0;
+        for (int k = 0; k < BLOCK; k++) {
+            hash = hash * PRIME + bytes[offset + k];
+        }
+        return hash;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarInt(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = bytes[position[0]++] & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * @className: LooseObjectIndex
+ * @description: Sorted ids of the loose objects, so an abbreviated hash is resolved by binary search
+ * instead of listing its fan-out directory. Two files under .gitlet/objects:
+ * - loose.idx     : header (magic, version, count), then the 20 byte ids in sorted order, memory-mapped
+ * - loose.journal : the 20 byte ids written since loose.idx was last rewritten, in write order
+ * New ids are appended to the journal, which is merged into loose.idx once it holds JOURNAL_LIMIT ids, or an
+ * eighth of loose.idx when that is more, so that writing many objects rewrites the index a bounded number of times.
+ * A missing loose.idx, e.g. in a repository written by an older version, is rebuilt from the directories.
+ * Objects may be written from several threads, the methods are synchronized.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class LooseObjectIndex {
+    static final int MAGIC = 0x474c4958; // "GLIX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int JOURNAL_LIMIT = 512;
+    private static final int ID_LENGTH = PackFile.ID_LENGTH;
+
+    private final LooseObjectStore store;
+    private final File indexFile;
+    private final File journalFile;
+    private MappedByteBuffer index;
+    private int indexCount;
+    private TreeSet<String> journal;
+
+    public LooseObjectIndex(LooseObjectStore store, File objectsDir) {
+        this.store = store;
+        this.indexFile = Utils.join(objectsDir, "loose.idx");
+        this.journalFile = Utils.join(objectsDir, "loose.journal");
+    }
+
+    public synchronized boolean contains(String hash) {
+        load();
+        return journal.contains(hash) || find(Utils.fromHex(hash)) >= 0;
+    }
+
+    /**
+     * @return the number of ids in the index and the journal
+     */
+    public synchronized int size() {
+        load();
+        return indexCount + journal.size();
+    }
+
+    /**
+     * Add every id of the index and the journal to FILTER.
+     */
+    public synchronized void addIdsTo(BloomFilter filter) {
+        load();
+        for (int i = 0; i < indexCount; i++) {
+            filter.add(idAt(i));
+        }
+        journal.forEach(hash -> filter.add(Utils.fromHex(hash)));
+    }
+
+    /**
+     * Record the id of a loose object that was just written.
+     */
+    public synchronized void add(String hash) {
+        if (contains(hash)) {
+            return;
+        }
+
+        try (OutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(Utils.fromHex(hash));
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + journalFile.getName() + ": " + e.getMessage());
+        }
+        journal.add(hash);
+
+        if (journal.size() >= Math.max(JOURNAL_LIMIT, indexCount / 8)) {
+            mergeJournal();
+        }
+    }
+
+    /**
+     * Rewrite loose.idx with the ids of the journal merged in. Both are sorted, and the hexadecimal order of
+     * the journal is the byte order of the index, so the ids are merged as bytes in one pass.
+     */
+    private void mergeJournal() {
+        byte[] merged = new byte[(indexCount + journal.size()) * ID_LENGTH];
+        ByteBuffer indexed = index.duplicate();
+        indexed.position(HEADER_SIZE);
+        int count = 0;
+        int position = 0;
+        for (String hash : journal) {
+            byte[] id = Utils.fromHex(hash);
+            for (; position < indexCount && compareAt(position, id) < 0; position++) {
+                indexed.get(merged, count++ * ID_LENGTH, ID_LENGTH);
+            }
+            if (position < indexCount && compareAt(position, id) == 0) {
+                continue;
+            }
+            System.arraycopy(id, 0, merged, count++ * ID_LENGTH, ID_LENGTH);
+        }
+        for (; position < indexCount; position++) {
+            indexed.get(merged, count++ * ID_LENGTH, ID_LENGTH);
+        }
+        writeIndex(merged, count);
+    }
+
+    /**
+     * Collect the full hashes of the indexed objects starting with PREFIX, stopping after LIMIT matches.
+     */
+    public synchronized void findByPrefix(String prefix, int limit, List<String> matches) {
+        load();
+        StringBuilder padded = new StringBuilder(prefix);
+        while (padded.length() < ID_LENGTH * 2) {
+            padded.append('0');
+        }
+
+        for (int position = lowerBound(Utils.fromHex(padded.toString()));
+             position < indexCount && matches.size() < limit; position++) {
+            String hash = Utils.toHex(idAt(position));
+            if (!hash.startsWith(prefix)) {
+                break;
+            }
+            if (!matches.contains(hash)) {
+                matches.add(hash);
+            }
+        }
+
+        for (String hash : journal.tailSet(padded.toString())) {
+            if (matches.size() >= limit || !hash.startsWith(prefix)) {
+                return;
+            }
+            if (!matches.contains(hash)) {
+                matches.add(hash);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the index from the loose objects actually stored.
+     */
+    public synchronized void rebuild() {
+        rebuild(store.listAll());
+    }
+
+    private void rebuild(Collection<String> sortedHashes) {
+        byte[] ids = new byte[sortedHashes.size() * ID_LENGTH];
+        int count = 0;
+        for (String hash : sortedHashes) {
+            System.arraycopy(Utils.fromHex(hash), 0, ids, count++ * ID_LENGTH, ID_LENGTH);
+        }
+        writeIndex(ids, count);
+    }
+
+    /**
+     * Write the first COUNT sorted ids of IDS as loose.idx, emptying the journal.
+     */
+    private void writeIndex(byte[] ids, int count) {
+        index = null;
+        try {
+            File parent = indexFile.getParentFile();
+            parent.mkdirs();
+            File tempIndex = File.createTempFile("tmp-", ".idx", parent);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempIndex.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(count);
+                out.write(ids, 0, count * ID_LENGTH);
+            }
+            Files.move(tempIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(journalFile.toPath());
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + indexFile.getName() + ": " + e.getMessage());
+        }
+        journal = null;
+        load();
+    }
+
+    private void load() {
+        if (index != null) {
+            return;
+        }
+        if (!indexFile.isFile()) {
+            rebuild();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GitletException("Cannot open " + indexFile.getName() + ": " + e.getMessage());
+        }
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new GitletException("Unsupported loose object index " + indexFile.getName());
+        }
+        indexCount = index.getInt(8);
+
+        journal = new TreeSet<>();
+        if (journalFile.isFile()) {
+            byte[] ids = Utils.readContents(journalFile);
+            // a torn last record, left by an interrupted write, is ignored
+            for (int offset = 0; offset + ID_LENGTH <= ids.length; offset += ID_LENGTH) {
+                byte[] id = new byte[ID_LENGTH];
+                System.arraycopy(ids, offset, id, 0, ID_LENGTH);
+                journal.add(Utils.toHex(id));
+            }
+        }
+    }
+
+    private int find(byte[] id) {
+        int position = lowerBound(id);
+        if (position < indexCount && compareAt(position, id) == 0) {
+            return position;
+        }
+        return -1;
+    }
+
+    /**
+     * Binary search for the first id of the index that is not smaller than ID.
+     */
+    private int lowerBound(byte[] id) {
+        int low = 0;
+        int high = indexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(mid, id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareAt(int position, byte[] id) {
+        int entry = HEADER_SIZE + position * ID_LENGTH;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int diff = (index.get(entry + i) & 0xff) - (id[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private byte[] idAt(int position) {
+        byte[] id = new byte[ID_LENGTH];
+        ByteBuffer entry = index.duplicate();
+        entry.position(HEADER_SIZE + position * ID_LENGTH);
+        entry.get(id);
+        return id;
+    }
+}
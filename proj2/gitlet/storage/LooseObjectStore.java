@@ -0,0 +1,132 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @className: LooseObjectStore
+ * @description: One file per object under .gitlet/objects, fanned out by the first two hexadecimal
+ * digits of the sha1 hash. New objects always land here until the next repack folds them into a pack.
+ * Their ids are also kept in a LooseObjectIndex, which resolves abbreviated hashes.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class LooseObjectStore {
+    private final File objectsDir;
+    private final LooseObjectIndex index;
+
+    public LooseObjectStore(File objectsDir) {
+        this.objectsDir = objectsDir;
+        this.index = new LooseObjectIndex(this, objectsDir);
+    }
+
+    public boolean contains(String hash) {
+        return objectFile(hash).isFile();
+    }
+
+    /**
+     * Look HASH up in the index only, without touching the object files. An object whose id never reached the
+     * index, e.g. after an interrupted write, is missed.
+     */
+    public boolean isIndexed(String hash) {
+        return index.contains(hash);
+    }
+
+    public int indexedCount() {
+        return index.size();
+    }
+
+    public void addIndexedIdsTo(BloomFilter filter) {
+        index.addIdsTo(filter);
+    }
+
+    public byte[] read(String hash) {
+        File file = objectFile(hash);
+        return file.isFile() ? Utils.readContents(file) : null;
+    }
+
+    public InputStream open(String hash) {
+        try {
+            return Files.newInputStream(objectFile(hash).toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new GitletException("Cannot read object " + hash + ": " + e.getMessage());
+        }
+    }
+
+    public void write(String hash, byte[] data) {
+        File indexDirectory = indexDirectory(hash);
+        indexDirectory.mkdirs();
+        Utils.writeContents(Utils.join(indexDirectory, hash.substring(2)), data);
+        index.add(hash);
+    }
+
+    /**
+     * Delete the loose objects HASHES, once they are stored elsewhere.
+     */
+    public void delete(List<String> hashes) {
+        for (String hash : hashes) {
+            objectFile(hash).delete();
+            indexDirectory(hash).delete();
+        }
+        index.rebuild();
+    }
+
+    /**
+     * Collect the full hashes of the loose objects starting with PREFIX, stopping after LIMIT matches.
+     * The index is searched first; the fan-out directory is only listed when it finds nothing,
+     * to catch an object whose id never reached the index, e.g. after an interrupted write.
+     */
+    public void findByPrefix(String prefix, int limit, List<String> matches) {
+        int found = matches.size();
+        index.findByPrefix(prefix, limit, matches);
+        if (matches.size() > found) {
+            return;
+        }
+
+        List<String> names = Utils.plainFilenamesIn(indexDirectory(prefix));
+        if (names == null) {
+            return;
+        }
+        String rest = prefix.substring(2);
+        if (names.stream().anyMatch(name -> name.startsWith(rest))) {
+            index.rebuild();
+            index.findByPrefix(prefix, limit, matches);
+        }
+    }
+
+    /**
+     * @return the hashes of every loose object, in lexicographic order
+     */
+    public List<String> listAll() {
+        List<String> hashes = new ArrayList<>();
+        String[] directories = objectsDir.list((dir, name) -> name.length() == 2 && new File(dir, name).isDirectory());
+        if (directories == null) {
+            return hashes;
+        }
+
+        Arrays.sort(directories);
+        for (String index : directories) {
+            Utils.plainFilenamesIn(Utils.join(objectsDir, index)).forEach(rest -> hashes.add(index + rest));
+        }
+        return hashes;
+    }
+
+    private File objectFile(String hash) {
+        return Utils.join(indexDirectory(hash), hash.substring(2));
+    }
+
+    private File indexDirectory(String hash) {
+        return Utils.join(objectsDir, hash.substring(0, 2));
+    }
+}
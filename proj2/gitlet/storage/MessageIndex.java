@@ -0,0 +1,370 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * @className: MessageIndex
+ * @description: Inverted index of the words of the commit messages, in .gitlet/logs/message-index,
+ * from each word to the catalog positions of the commits whose message holds it:
+ * - header  : magic, version, number of catalog commits covered, number of words
+ * - offsets : the file offset of each word entry, in word order, so a word is found by binary search
+ * - entries : word length, word (UTF-8), number of positions, byte length of the positions,
+ *             then the positions in increasing order, delta and varint encoded
+ * The index covers the oldest commits of the catalog; the newer ones are read from the catalog itself.
+ * Once MERGE_THRESHOLD commits are left uncovered, which the commit command checks, they are merged in.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class MessageIndex {
+    static final int MAGIC = 0x474d4958; // "GMIX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    static final int MERGE_THRESHOLD = 1024;
+
+    private final File indexFile;
+    private final CommitCatalog catalog;
+    private MappedByteBuffer index;
+    private long coveredCount;
+    private int wordCount;
+
+    public MessageIndex(File logsDir, CommitCatalog catalog) {
+        this.indexFile = Utils.join(logsDir, "message-index");
+        this.catalog = catalog;
+    }
+
+    /**
+     * @return the distinct words of MESSAGE, lower-cased; a word is a run of letters and digits
+     */
+    public static List<String> tokenize(String message) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= message.length(); i++) {
+            boolean inWord = i < message.length() && Character.isLetterOrDigit(message.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(message.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Merge the commits the index does not cover yet once there are enough of them.
+     */
+    public void update() {
+        load();
+        if (catalog.size() - coveredCount >= MERGE_THRESHOLD) {
+            Map<String, Postings> postings = readAll();
+            addCatalog(postings, coveredCount);
+            write(postings, catalog.size());
+        }
+    }
+
+    /**
+     * Rebuild the whole index from the catalog.
+     */
+    public void rebuild() {
+        Map<String, Postings> postings = new TreeMap<>();
+        addCatalog(postings, 0);
+        write(postings, catalog.size());
+    }
+
+    /**
+     * @return the catalog positions of the commits whose message holds all of WORDS, the newest first
+     */
+    public long[] findAll(List<String> words) {
+        load();
+        long[] result = null;
+        for (String word : words) {
+            long[] positions = read(word);
+            result = result == null ? positions : intersect(result, positions);
+        }
+
+        return newestFirst(result == null ? new long[0] : result, uncoveredMatching(
+            message -> tokenize(message).containsAll(words)));
+    }
+
+    /**
+     * @return the catalog positions of the commits whose message holds a word starting with PREFIX,
+     * the newest first
+     */
+    public long[] findPrefix(String prefix) {
+        load();
+        String lowerPrefix = prefix.toLowerCase();
+        long[] result = new long[0];
+        for (int word = lowerBound(lowerPrefix); word < wordCount; word++) {
+            ByteBuffer entry = entryAt(word);
+            if (!readWord(entry).startsWith(lowerPrefix)) {
+                break;
+            }
+            result = union(result, readPositions(entry));
+        }
+        return newestFirst(result, uncoveredMatching(
+            message -> tokenize(message).stream().anyMatch(word -> word.startsWith(lowerPrefix))));
+    }
+
+    private long[] uncoveredMatching(Predicate<String> matches) {
+        List<Long> positions = new ArrayList<>();
+        catalog.visitOldestFirst(coveredCount, entry -> {
+            if (matches.test(entry.getMessage())) {
+                positions.add(entry.getPosition());
+            }
+            return true;
+        });
+        return positions.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long[] newestFirst(long[] covered, long[] uncovered) {
+        long[] all = Arrays.copyOf(covered, covered.length + uncovered.length);
+        System.arraycopy(uncovered, 0, all, covered.length, uncovered.length);
+        for (int i = 0, j = all.length - 1; i < j; i++, j--) {
+            long swap = all[i];
+            all[i] = all[j];
+            all[j] = swap;
+        }
+        return all;
+    }
+
+    private long[] read(String word) {
+        int position = lowerBound(word);
+        if (position < wordCount) {
+            ByteBuffer entry = entryAt(position);
+            if (readWord(entry).equals(word)) {
+                return readPositions(entry);
+            }
+        }
+        return new long[0];
+    }
+
+    /**
+     * Binary search for the first word of the index that is not smaller than WORD.
+     */
+    private int lowerBound(String word) {
+        int low = 0;
+        int high = wordCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (readWord(entryAt(mid)).compareTo(word) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private ByteBuffer entryAt(int word) {
+        ByteBuffer entry = index.duplicate();
+        entry.position((int) index.getLong(HEADER_SIZE + word * 8));
+        return entry;
+    }
+
+    private static String readWord(ByteBuffer entry) {
+        byte[] word = new byte[entry.getInt()];
+        entry.get(word);
+        return new String(word, StandardCharsets.UTF_8);
+    }
+
+    private static long[] readPositions(ByteBuffer entry) {
+        long[] positions = new long[entry.getInt()];
+        entry.getInt();
+        long position = 0;
+        for (int i = 0; i < positions.length; i++) {
+            position += readVarLong(entry);
+            positions[i] = position;
+        }
+        return positions;
+    }
+
+    private Map<String, Postings> readAll() {
+        Map<String, Postings> postings = new TreeMap<>();
+        for (int word = 0; word < wordCount; word++) {
+            ByteBuffer entry = entryAt(word);
+            Postings wordPostings = new Postings();
+            String text = readWord(entry);
+            for (long position : readPositions(entry)) {
+                wordPostings.add(position);
+            }
+            postings.put(text, wordPostings);
+        }
+        return postings;
+    }
+
+    private void addCatalog(Map<String, Postings> postings, long from) {
+        catalog.visitOldestFirst(from, entry -> {
+            for (String word : tokenize(entry.getMessage())) {
+                postings.computeIfAbsent(word, w -> new Postings()).add(entry.getPosition());
+            }
+            return true;
+        });
+    }
+
+    private void write(Map<String, Postings> postings, long covered) {
+        index = null;
+        try {
+            File tempIndex = File.createTempFile("tmp-", ".idx", indexFile.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempIndex.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(covered);
+                out.writeInt(postings.size());
+
+                List<byte[]> entries = new ArrayList<>(postings.size());
+                long offset = HEADER_SIZE + 8L * postings.size();
+                for (Map.Entry<String, Postings> word : postings.entrySet()) {
+                    byte[] entry = encodeEntry(word.getKey(), word.getValue());
+                    entries.add(entry);
+                    out.writeLong(offset);
+                    offset += entry.length;
+                }
+                for (byte[] entry : entries) {
+                    out.write(entry);
+                }
+            }
+            Files.move(tempIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + indexFile.getName() + ": " + e.getMessage());
+        }
+        load();
+    }
+
+    private static byte[] encodeEntry(String word, Postings postings) throws IOException {
+        ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+        long previous = 0;
+        for (int i = 0; i < postings.size; i++) {
+            writeVarLong(deltas, postings.values[i] - previous);
+            previous = postings.values[i];
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] wordBytes = word.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(wordBytes.length);
+        out.write(wordBytes);
+        out.writeInt(postings.size);
+        out.writeInt(deltas.size());
+        deltas.writeTo(out);
+        return bytes.toByteArray();
+    }
+
+    private void load() {
+        if (index != null) {
+            return;
+        }
+        if (!indexFile.isFile()) {
+            coveredCount = 0;
+            wordCount = 0;
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GitletException("Cannot open " + indexFile.getName() + ": " + e.getMessage());
+        }
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new GitletException("Unsupported message index " + indexFile.getName());
+        }
+        coveredCount = index.getLong(8);
+        wordCount = index.getInt(16);
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long[] union(long[] left, long[] right) {
+        long[] result = new long[left.length + right.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length || j < right.length) {
+            long next;
+            if (j >= right.length || (i < left.length && left[i] < right[j])) {
+                next = left[i++];
+            } else if (i >= left.length || right[j] < left[i]) {
+                next = right[j++];
+            } else {
+                next = left[i++];
+                j++;
+            }
+            result[count++] = next;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get() & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Growable list of increasing positions, without boxing.
+     */
+    private static class Postings {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long position) {
+            if (size > 0 && values[size - 1] == position) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+    }
+}
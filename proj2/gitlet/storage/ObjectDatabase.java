@@ -0,0 +1,194 @@
+package gitlet.storage;
+
+import gitlet.utils.Utils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * @className: ObjectDatabase
+ * @description: All the objects of a repository, wherever they are stored.
+ * - loose objects are looked up first, they hold everything written since the last repack
+ * - packs are then searched through their memory-mapped idx files
+ * Writes always go to the loose store; repack folds loose objects and older packs into a single pack.
+ * Before a write, isStored tells whether the object is already there from a Bloom filter of every stored id,
+ * loaded from the loose index and the pack indexes on first use, then from those indexes alone, so that an
+ * object stored again costs no file access.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class ObjectDatabase {
+    private final File packDir;
+    private final LooseObjectStore looseObjects;
+    private List<PackFile> packs;
+    private BloomFilter storedIds;
+
+    public ObjectDatabase(File objectsDir) {
+        this.packDir = Utils.join(objectsDir, "pack");
+        this.looseObjects = new LooseObjectStore(objectsDir);
+    }
+
+    public boolean contains(String hash) {
+        if (looseObjects.contains(hash)) {
+            return true;
+        }
+        return getPacks().stream().anyMatch(pack -> pack.contains(hash));
+    }
+
+    /**
+     * Whether the object HASH is already stored, answered from the indexes in memory. An object missing from
+     * them, e.g. after an interrupted write, is reported absent and only costs a redundant write.
+     */
+    public boolean isStored(String hash) {
+        byte[] id = Utils.fromHex(hash);
+        synchronized (this) {
+            if (!getStoredIds().mightContain(id)) {
+                return false;
+            }
+        }
+        return looseObjects.isIndexed(hash) || getPacks().stream().anyMatch(pack -> pack.contains(hash));
+    }
+
+    /**
+     * @return the bytes of the object HASH, or null if it does not exist
+     */
+    public byte[] read(String hash) {
+        byte[] data = looseObjects.read(hash);
+        if (data != null) {
+            return data;
+        }
+
+        for (PackFile pack : getPacks()) {
+            data = pack.read(hash);
+            if (data != null) {
+                return data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a stream over the bytes of the object HASH, or null if it does not exist
+     */
+    public InputStream open(String hash) {
+        InputStream in = looseObjects.open(hash);
+        if (in != null) {
+            return in;
+        }
+
+        for (PackFile pack : getPacks()) {
+            in = pack.open(hash);
+            if (in != null) {
+                return in;
+            }
+        }
+        return null;
+    }
+
+    public void write(String hash, byte[] data) {
+        looseObjects.write(hash, data);
+        synchronized (this) {
+            if (storedIds != null) {
+                storedIds.add(Utils.fromHex(hash));
+                if (storedIds.isFull()) {
+                    storedIds = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve an abbreviated hash.
+     *
+     * @return the full hashes starting with PREFIX, at most LIMIT of them
+     */
+    public List<String> findByPrefix(String prefix, int limit) {
+        List<String> matches = new ArrayList<>();
+        if (prefix.length() < 2 || !prefix.matches("[0-9a-f]+")) {
+            return matches;
+        }
+        // a full hash needs no resolution
+        if (prefix.length() == PackFile.ID_LENGTH * 2) {
+            if (contains(prefix)) {
+                matches.add(prefix);
+            }
+            return matches;
+        }
+
+        looseObjects.findByPrefix(prefix, limit, matches);
+        for (PackFile pack : getPacks()) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            pack.findByPrefix(prefix, limit, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Fold every loose object and every existing pack into one new pack, then delete what it replaced.
+     *
+     * @param encoder gives the bytes to pack for each object, it may re-encode the object differently
+     *                as long as it still decodes to the same object
+     */
+    public void repack(Function<String, byte[]> encoder) {
+        List<String> looseHashes = looseObjects.listAll();
+        List<PackFile> oldPacks = getPacks();
+        TreeSet<String> hashes = new TreeSet<>(looseHashes);
+        oldPacks.forEach(pack -> hashes.addAll(Arrays.asList(pack.listAll())));
+
+        File indexFile = new PackWriter(packDir).write(new ArrayList<>(hashes), encoder);
+
+        for (PackFile pack : oldPacks) {
+            if (!pack.getIndexFile().equals(indexFile)) {
+                pack.getIndexFile().delete();
+                pack.getPackFile().delete();
+            }
+        }
+        looseObjects.delete(looseHashes);
+        packs = null;
+        synchronized (this) {
+            storedIds = null;
+        }
+    }
+
+    /**
+     * Sized for twice the ids stored now, so that a command writing many objects rarely has to rebuild it.
+     */
+    private BloomFilter getStoredIds() {
+        if (storedIds == null) {
+            List<PackFile> currentPacks = getPacks();
+            long count = looseObjects.indexedCount();
+            for (PackFile pack : currentPacks) {
+                count += pack.getObjectCount();
+            }
+            BloomFilter filter = new BloomFilter((int) Math.min(count * 2, Integer.MAX_VALUE / 16));
+            looseObjects.addIndexedIdsTo(filter);
+            currentPacks.forEach(pack -> pack.addIdsTo(filter));
+            storedIds = filter;
+        }
+        return storedIds;
+    }
+
+    /**
+     * Synchronized, objects may be read from several threads during a checkout.
+     */
+    private synchronized List<PackFile> getPacks() {
+        if (packs == null) {
+            List<PackFile> found = new ArrayList<>();
+            List<String> names = Utils.plainFilenamesIn(packDir);
+            if (names != null) {
+                names.stream()
+                    .filter(name -> name.startsWith("pack-") && name.endsWith(".idx"))
+                    .forEach(name -> found.add(new PackFile(Utils.join(packDir, name))));
+            }
+            packs = found;
+        }
+        return packs;
+    }
+}
@@ -0,0 +1,255 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @className: PackFile
+ * @description: Read side of a pack, i.e. a pair of files under .gitlet/objects/pack:
+ * - pack-xxx.pack : header, then every object appended as (length, bytes), then a sha1 trailer
+ * - pack-xxx.idx  : header, a 256 entry fan-out table, then fixed-width entries
+ *                   (20 byte object id, 8 byte offset, 4 byte length) sorted by object id.
+ * The idx file is memory-mapped and binary-searched, so a lookup costs O(log n) page touches
+ * no matter how many objects the pack holds.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class PackFile {
+    static final int PACK_MAGIC = 0x47504b50; // "GPKP"
+    static final int INDEX_MAGIC = 0x47504b49; // "GPKI"
+    static final int VERSION = 1;
+    static final int PACK_HEADER_SIZE = 12;
+    static final int INDEX_HEADER_SIZE = 12;
+    static final int FANOUT_SIZE = 256 * 4;
+    static final int ID_LENGTH = 20;
+    static final int ENTRY_SIZE = ID_LENGTH + 8 + 4;
+
+    private final File packFile;
+    private final File indexFile;
+    private final MappedByteBuffer index;
+    private final int objectCount;
+
+    public PackFile(File indexFile) {
+        this.indexFile = indexFile;
+        this.packFile = new File(indexFile.getPath().replaceAll("\\.idx$", ".pack"));
+
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GitletException("Cannot open pack index " + indexFile.getName() + ": " + e.getMessage());
+        }
+
+        if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION) {
+            throw new GitletException("Unsupported pack index " + indexFile.getName());
+        }
+        this.objectCount = index.getInt(8);
+    }
+
+    public File getPackFile() {
+        return packFile;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    public boolean contains(String hash) {
+        return find(Utils.fromHex(hash)) >= 0;
+    }
+
+    /**
+     * @return the bytes of the object HASH, or null if this pack does not hold it
+     */
+    public byte[] read(String hash) {
+        int position = find(Utils.fromHex(hash));
+        if (position < 0) {
+            return null;
+        }
+
+        int entry = entryOffset(position);
+        long offset = index.getLong(entry + ID_LENGTH);
+        int length = index.getInt(entry + ID_LENGTH + 8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of pack");
+                }
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot read pack " + packFile.getName() + ": " + e.getMessage());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return a stream over the bytes of the object HASH, or null if this pack does not hold it
+     */
+    public InputStream open(String hash) {
+        int position = find(Utils.fromHex(hash));
+        if (position < 0) {
+            return null;
+        }
+
+        int entry = entryOffset(position);
+        long offset = index.getLong(entry + ID_LENGTH);
+        int length = index.getInt(entry + ID_LENGTH + 8);
+        try {
+            return new PackEntryInputStream(FileChannel.open(packFile.toPath(), StandardOpenOption.READ),
+                offset, length);
+        } catch (IOException e) {
+            throw new GitletException("Cannot read pack " + packFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collect the full hashes of the objects starting with PREFIX, stopping after LIMIT matches.
+     */
+    public void findByPrefix(String prefix, int limit, List<String> matches) {
+        StringBuilder padded = new StringBuilder(prefix);
+        while (padded.length() < ID_LENGTH * 2) {
+            padded.append('0');
+        }
+
+        byte[] lowerBound = Utils.fromHex(padded.toString());
+        int position = lowerBound(lowerBound);
+        int end = fanout(lowerBound[0] & 0xff);
+
+        for (; position < end && matches.size() < limit; position++) {
+            String hash = Utils.toHex(idAt(position));
+            if (!hash.startsWith(prefix)) {
+                return;
+            }
+            if (!matches.contains(hash)) {
+                matches.add(hash);
+            }
+        }
+    }
+
+    /**
+     * @return every object id in this pack, in sorted order
+     */
+    public String[] listAll() {
+        String[] hashes = new String[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            hashes[i] = Utils.toHex(idAt(i));
+        }
+        return hashes;
+    }
+
+    /**
+     * Add every object id of this pack to FILTER.
+     */
+    public void addIdsTo(BloomFilter filter) {
+        for (int i = 0; i < objectCount; i++) {
+            filter.add(idAt(i));
+        }
+    }
+
+    private int find(byte[] id) {
+        int position = lowerBound(id);
+        if (position < fanout(id[0] & 0xff) && compareAt(position, id) == 0) {
+            return position;
+        }
+        return -1;
+    }
+
+    /**
+     * Binary search for the first entry whose id is not smaller than ID, narrowed by the fan-out table.
+     */
+    private int lowerBound(byte[] id) {
+        int first = id[0] & 0xff;
+        int low = first == 0 ? 0 : fanout(first - 1);
+        int high = fanout(first);
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(mid, id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareAt(int position, byte[] id) {
+        int entry = entryOffset(position);
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int diff = (index.get(entry + i) & 0xff) - (id[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private byte[] idAt(int position) {
+        byte[] id = new byte[ID_LENGTH];
+        ByteBuffer entry = index.duplicate();
+        entry.position(entryOffset(position));
+        entry.get(id);
+        return id;
+    }
+
+    private int fanout(int bucket) {
+        return index.getInt(INDEX_HEADER_SIZE + bucket * 4);
+    }
+
+    private static int entryOffset(int position) {
+        return INDEX_HEADER_SIZE + FANOUT_SIZE + position * ENTRY_SIZE;
+    }
+
+    /**
+     * Positional reads over the region of the pack holding one object.
+     */
+    private static class PackEntryInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        PackEntryInputStream(FileChannel channel, long offset, int length) {
+            this.channel = channel;
+            this.position = offset;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, remaining)), position);
+            if (read > 0) {
+                position += read;
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
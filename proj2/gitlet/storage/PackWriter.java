@@ -0,0 +1,109 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.function.Function;
+
+import static gitlet.storage.PackFile.*;
+
+/**
+ * @className: PackWriter
+ * @description: Write side of a pack. Objects are streamed into a temporary pack file in sorted id
+ * order, then the idx file is written from the recorded offsets. Both files are renamed into place
+ * only once complete, idx last, so a reader never sees a half-written pack.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class PackWriter {
+    private final File packDir;
+
+    public PackWriter(File packDir) {
+        this.packDir = packDir;
+    }
+
+    /**
+     * Write HASHES, sorted and free of duplicates, into a new pack whose object contents are given by READER.
+     *
+     * @return the idx file of the new pack
+     */
+    public File write(List<String> hashes, Function<String, byte[]> reader) {
+        packDir.mkdirs();
+        long[] offsets = new long[hashes.size()];
+        int[] lengths = new int[hashes.size()];
+
+        try {
+            File tempPack = File.createTempFile("tmp-", ".pack", packDir);
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new DigestOutputStream(Files.newOutputStream(tempPack.toPath()), digest)))) {
+                out.writeInt(PACK_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(hashes.size());
+                // DataOutputStream.size() stops counting at Integer.MAX_VALUE, a pack may be larger
+                long position = PACK_HEADER_SIZE;
+
+                for (int i = 0; i < hashes.size(); i++) {
+                    byte[] data = reader.apply(hashes.get(i));
+                    out.writeInt(data.length);
+                    position += 4;
+                    offsets[i] = position;
+                    lengths[i] = data.length;
+                    out.write(data);
+                    position += data.length;
+                }
+                out.flush();
+                out.write(digest.digest());
+            }
+
+            String packName = "pack-" + Utils.sha1(String.join("", hashes));
+            File packFile = Utils.join(packDir, packName + ".pack");
+            File indexFile = Utils.join(packDir, packName + ".idx");
+            File tempIndex = File.createTempFile("tmp-", ".idx", packDir);
+
+            writeIndex(tempIndex, hashes, offsets, lengths);
+            Files.move(tempPack.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return indexFile;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new GitletException("Cannot write pack: " + e.getMessage());
+        }
+    }
+
+    private void writeIndex(File indexFile, List<String> hashes, long[] offsets, int[] lengths) throws IOException {
+        int[] fanout = new int[256];
+        for (String hash : hashes) {
+            fanout[Integer.parseInt(hash.substring(0, 2), 16)]++;
+        }
+        for (int i = 1; i < fanout.length; i++) {
+            fanout[i] += fanout[i - 1];
+        }
+
+        try (OutputStream stream = Files.newOutputStream(indexFile.toPath());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hashes.size());
+            for (int count : fanout) {
+                out.writeInt(count);
+            }
+            for (int i = 0; i < hashes.size(); i++) {
+                out.write(Utils.fromHex(hashes.get(i)));
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package gitlet.storage;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+import gitlet.utils.Utils;
+import gitlet.worktree.FileStat;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * @className: StagingIndex
+ * @description: The staging area on disk, in two files under .gitlet:
+ * - index         : header (magic, version, entry count, staged count, removed count, string table size,
+ *                   offset and length of the monitor token), then one fixed-width entry per path in path order,
+ *                   then the string table holding the paths and file keys, then a CRC32 of everything before it
+ * - index.journal : the entries changed since the index was last written, one checksummed batch per write,
+ *                   each batch starting with the staged and removed counts after it and the monitor token
+ * An entry holds flags (staged, removed, stat-ed), the 20 byte id of the staged blob, the 20 byte id of the
+ * blob the working file had when stat-ed, its size and modification time, then the offsets and lengths of its
+ * path and file key in the string table. Whether anything is staged is answered from the header and the
+ * batch headers alone. The journal is merged into the index once it holds JOURNAL_LIMIT entries.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class StagingIndex {
+    static final int MAGIC = 0x47535447; // "GSTG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int ID_LENGTH = PackFile.ID_LENGTH;
+    static final int ENTRY_SIZE = 4 + ID_LENGTH + ID_LENGTH + 8 + 8 + 4 + 4 + 4 + 4;
+    static final int JOURNAL_LIMIT = 512;
+    private static final int STAGED = 1;
+    private static final int REMOVED = 2;
+    private static final int STAT = 4;
+    private static final byte[] NO_ID = new byte[ID_LENGTH];
+
+    private final File indexFile;
+    private final File journalFile;
+    private int journalEntries;
+
+    public StagingIndex(File indexFile, File journalFile) {
+        this.indexFile = indexFile;
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * @return whether FILE holds a staging area written by Java serialization, as older versions did
+     */
+    public static boolean isSerialized(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return in.read() == 0xAC && in.read() == 0xED;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of files staged for addition and for removal, read from the headers only
+     */
+    public int[] readCounts() {
+        int[] counts = new int[2];
+        if (indexFile.length() >= HEADER_SIZE) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(indexFile.toPath()))) {
+                checkHeader(in.readInt(), in.readInt());
+                in.readInt();
+                counts[0] = in.readInt();
+                counts[1] = in.readInt();
+            } catch (IOException e) {
+                throw new GitletException("Cannot read " + indexFile.getName() + ": " + e.getMessage());
+            }
+        }
+        for (ByteBuffer batch : readJournal()) {
+            counts[0] = batch.getInt(0);
+            counts[1] = batch.getInt(4);
+        }
+        return counts;
+    }
+
+    /**
+     * @return every entry, by path, with the journal applied
+     */
+    public Contents read() {
+        Contents contents = new Contents();
+        if (indexFile.length() > 0) {
+            readIndex(contents);
+        }
+
+        journalEntries = 0;
+        for (ByteBuffer batch : readJournal()) {
+            batch.position(8);
+            contents.monitorToken = batch.get() == 0 ? null : readString(batch);
+            int count = batch.getInt();
+            for (int i = 0; i < count; i++) {
+                String path = readString(batch);
+                if (batch.get() == 0) {
+                    contents.entries.remove(path);
+                } else {
+                    contents.entries.put(path, readJournalEntry(batch));
+                }
+            }
+            journalEntries += count;
+        }
+        return contents;
+    }
+
+    /**
+     * @return whether CHANGES more entries would take the journal past JOURNAL_LIMIT, so the whole index
+     * should be written instead; only known once the index was read
+     */
+    public boolean shouldCompact(int changes) {
+        return journalEntries + changes > JOURNAL_LIMIT;
+    }
+
+    /**
+     * Write the whole index, emptying the journal.
+     *
+     * @return the modification time of the index, in nanoseconds since the epoch
+     */
+    public long write(SortedMap<String, Entry> entries, String monitorToken) {
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        int stagedCount = 0;
+        int removedCount = 0;
+        ByteBuffer table = ByteBuffer.allocate(entries.size() * ENTRY_SIZE);
+        for (Map.Entry<String, Entry> mapping : entries.entrySet()) {
+            Entry entry = mapping.getValue();
+            stagedCount += entry.stagedHash != null ? 1 : 0;
+            removedCount += entry.removed ? 1 : 0;
+            table.putInt(entry.flags());
+            table.put(entry.stagedHash == null ? NO_ID : entry.stagedHash.toBytes());
+            table.put(entry.stat == null ? NO_ID : entry.statHash.toBytes());
+            table.putLong(entry.stat == null ? 0 : entry.stat.getSize());
+            table.putLong(entry.stat == null ? 0 : entry.stat.getModifiedTime());
+            putString(table, strings, mapping.getKey());
+            putString(table, strings, entry.stat == null ? "" : entry.stat.getFileKey());
+        }
+        int tokenOffset = strings.size();
+        byte[] token = monitorToken == null ? new byte[0] : monitorToken.getBytes(StandardCharsets.UTF_8);
+        strings.writeBytes(token);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putInt(stagedCount).putInt(removedCount)
+            .putInt(strings.size()).putInt(tokenOffset).putInt(monitorToken == null ? -1 : token.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(header.array());
+        crc.update(table.array());
+        crc.update(strings.toByteArray());
+        try {
+            File parent = indexFile.getParentFile();
+            File tempIndex = File.createTempFile("tmp-", ".index", parent);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempIndex.toPath())))) {
+                out.write(header.array());
+                out.write(table.array());
+                strings.writeTo(out);
+                out.writeInt((int) crc.getValue());
+            }
+            Files.move(tempIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(journalFile.toPath());
+            journalEntries = 0;
+            return Files.getLastModifiedTime(indexFile.toPath()).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + indexFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Append CHANGES to the journal, a null entry for a path no longer in the index.
+     *
+     * @return the modification time of the journal, in nanoseconds since the epoch
+     */
+    public long append(Map<String, Entry> changes, int stagedCount, int removedCount, String monitorToken) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream batch = new DataOutputStream(bytes)) {
+            batch.writeInt(stagedCount);
+            batch.writeInt(removedCount);
+            batch.writeBoolean(monitorToken != null);
+            if (monitorToken != null) {
+                batch.writeUTF(monitorToken);
+            }
+            batch.writeInt(changes.size());
+            for (Map.Entry<String, Entry> change : changes.entrySet()) {
+                batch.writeUTF(change.getKey());
+                Entry entry = change.getValue();
+                batch.writeBoolean(entry != null);
+                if (entry != null) {
+                    writeJournalEntry(batch, entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot encode the staging journal: " + e.getMessage());
+        }
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+            journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + journalFile.getName() + ": " + e.getMessage());
+        }
+        journalEntries += changes.size();
+        try {
+            return Files.getLastModifiedTime(journalFile.toPath()).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            throw new GitletException("Cannot stat " + journalFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void readIndex(Contents contents) {
+        ByteBuffer index = ByteBuffer.wrap(Utils.readContents(indexFile));
+        if (index.limit() < HEADER_SIZE + 4) {
+            throw new GitletException("Corrupt staging index " + indexFile.getName());
+        }
+        checkHeader(index.getInt(0), index.getInt(4));
+        CRC32 crc = new CRC32();
+        crc.update(index.array(), 0, index.limit() - 4);
+        if ((int) crc.getValue() != index.getInt(index.limit() - 4)) {
+            throw new GitletException("Corrupt staging index " + indexFile.getName());
+        }
+
+        int count = index.getInt(8);
+        int stringsStart = HEADER_SIZE + count * ENTRY_SIZE;
+        int tokenLength = index.getInt(28);
+        contents.monitorToken = tokenLength < 0 ? null : stringAt(index, stringsStart + index.getInt(24), tokenLength);
+
+        index.position(HEADER_SIZE);
+        byte[] id = new byte[ID_LENGTH];
+        for (int i = 0; i < count; i++) {
+            int flags = index.getInt();
+            index.get(id);
+            ObjectId stagedHash = (flags & STAGED) != 0 ? ObjectId.fromBytes(id) : null;
+            index.get(id);
+            ObjectId statHash = (flags & STAT) != 0 ? ObjectId.fromBytes(id) : null;
+            long size = index.getLong();
+            long modifiedTime = index.getLong();
+            String path = stringAt(index, stringsStart + index.getInt(), index.getInt());
+            String fileKey = stringAt(index, stringsStart + index.getInt(), index.getInt());
+            FileStat stat = statHash == null ? null : new FileStat(size, modifiedTime, fileKey);
+            contents.entries.put(path, new Entry(stagedHash, (flags & REMOVED) != 0, stat, statHash));
+        }
+    }
+
+    /**
+     * @return the payload of every batch of the journal; a torn or corrupt last batch, left by an interrupted
+     * write, is ignored
+     */
+    private List<ByteBuffer> readJournal() {
+        List<ByteBuffer> batches = new ArrayList<>();
+        if (!journalFile.isFile()) {
+            return batches;
+        }
+
+        ByteBuffer journal = ByteBuffer.wrap(Utils.readContents(journalFile));
+        while (journal.remaining() >= 8) {
+            int length = journal.getInt();
+            if (length < 0 || journal.remaining() < length + 4) {
+                break;
+            }
+            ByteBuffer batch = journal.slice();
+            batch.limit(length);
+            journal.position(journal.position() + length);
+            CRC32 crc = new CRC32();
+            crc.update(batch.duplicate());
+            if ((int) crc.getValue() != journal.getInt()) {
+                break;
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static void writeJournalEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeInt(entry.flags());
+        out.write(entry.stagedHash == null ? NO_ID : entry.stagedHash.toBytes());
+        if (entry.stat != null) {
+            out.write(entry.statHash.toBytes());
+            out.writeLong(entry.stat.getSize());
+            out.writeLong(entry.stat.getModifiedTime());
+            out.writeUTF(entry.stat.getFileKey());
+        }
+    }
+
+    private static Entry readJournalEntry(ByteBuffer batch) {
+        int flags = batch.getInt();
+        byte[] id = new byte[ID_LENGTH];
+        batch.get(id);
+        ObjectId stagedHash = (flags & STAGED) != 0 ? ObjectId.fromBytes(id) : null;
+        if ((flags & STAT) == 0) {
+            return new Entry(stagedHash, (flags & REMOVED) != 0, null, null);
+        }
+        batch.get(id);
+        ObjectId statHash = ObjectId.fromBytes(id);
+        FileStat stat = new FileStat(batch.getLong(), batch.getLong(), readString(batch));
+        return new Entry(stagedHash, (flags & REMOVED) != 0, stat, statHash);
+    }
+
+    /**
+     * Read a string written by DataOutputStream.writeUTF, which is plain UTF-8 short of NUL and
+     * supplementary characters, neither of which a path or a token of ours holds.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void putString(ByteBuffer table, ByteArrayOutputStream strings, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        table.putInt(strings.size());
+        table.putInt(bytes.length);
+        strings.writeBytes(bytes);
+    }
+
+    private static String stringAt(ByteBuffer index, int offset, int length) {
+        return new String(index.array(), offset, length, StandardCharsets.UTF_8);
+    }
+
+    private void checkHeader(int magic, int version) {
+        if (magic != MAGIC || version != VERSION) {
+            throw new GitletException("Unsupported staging index " + indexFile.getName());
+        }
+    }
+
+    /**
+     * The entries of the index and the token of the file system monitor.
+     */
+    public static class Contents {
+        private final SortedMap<String, Entry> entries = new TreeMap<>();
+        private String monitorToken;
+
+        public SortedMap<String, Entry> getEntries() {
+            return entries;
+        }
+
+        public String getMonitorToken() {
+            return monitorToken;
+        }
+    }
+
+    /**
+     * What the index knows of one path: the blob staged for it, whether it is staged for removal, and the
+     * stat data of its working file with the blob the file had then.
+     */
+    public static class Entry {
+        private final ObjectId stagedHash;
+        private final boolean removed;
+        private final FileStat stat;
+        private final ObjectId statHash;
+
+        public Entry(ObjectId stagedHash, boolean removed, FileStat stat, ObjectId statHash) {
+            this.stagedHash = stagedHash;
+            this.removed = removed;
+            this.stat = stat;
+            this.statHash = statHash;
+        }
+
+        public ObjectId getStagedHash() {
+            return stagedHash;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        public FileStat getStat() {
+            return stat;
+        }
+
+        public ObjectId getStatHash() {
+            return statHash;
+        }
+
+        private int flags() {
+            return (stagedHash != null ? STAGED : 0) | (removed ? REMOVED : 0) | (stat != null ? STAT : 0);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package gitlet.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static gitlet.utils.Constants.CONFIG_FILE;
+
+/**
+ * @className: Config
+ * @description: Per repository settings, stored as key=value lines in .gitlet/config.
+ * Only the keys registered in DEFAULTS are accepted, a missing key reads as its default. Every value is an
+ * integer within the range registered in RANGES: set refuses any other, and one written to the file by hand
+ * reads as the default.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class Config {
+    /**
+     * Deflate level used for new blobs, from 0 (store only) to 9 (smallest), -1 is the zlib default
+     */
+    public static final String COMPRESSION = "core.compression";
+
+    /**
+     * Longest chain of deltas a blob may be stored behind, 0 stores every blob in full
+     */
+    public static final String DELTA_DEPTH = "core.deltaDepth";
+
+    /**
+     * Files of at least this many bytes are stored as content-defined chunks instead of a single blob
+     */
+    public static final String CHUNK_THRESHOLD = "core.chunkThreshold";
+
+    /**
+     * Number of decoded commits and blobs kept in memory by a command, 0 disables the cache
+     */
+    public static final String OBJECT_CACHE_SIZE = "core.objectCacheSize";
+
+    /**
+     * Number of threads writing files in parallel during a checkout or a reset, 1 writes them one by one
+     */
+    public static final String CHECKOUT_WORKERS = "checkout.workers";
+
+    /**
+     * Number of threads reading, and of threads hashing and storing, the files given to add
+     */
+    public static final String ADD_WORKERS = "add.workers";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    private static final Map<String, int[]> RANGES = new HashMap<>();
+    private static Properties properties;
+
+    static {
+        DEFAULTS.put(COMPRESSION, "-1");
+        DEFAULTS.put(DELTA_DEPTH, "10");
+        DEFAULTS.put(CHUNK_THRESHOLD, "8388608");
+        DEFAULTS.put(OBJECT_CACHE_SIZE, "1024");
+        DEFAULTS.put(CHECKOUT_WORKERS, "8");
+        DEFAULTS.put(ADD_WORKERS, "4");
+
+        RANGES.put(COMPRESSION, new int[]{-1, 9});
+        for (String key : List.of(DELTA_DEPTH, CHUNK_THRESHOLD, OBJECT_CACHE_SIZE, CHECKOUT_WORKERS, ADD_WORKERS)) {
+            RANGES.put(key, new int[]{0, Integer.MAX_VALUE});
+        }
+    }
+
+    public static boolean isKnownKey(String key) {
+        return DEFAULTS.containsKey(key);
+    }
+
+    public static String get(String key) {
+        return load().getProperty(key, DEFAULTS.get(key));
+    }
+
+    public static int getInt(String key) {
+        Integer value = parse(key, get(key));
+        return value == null ? Integer.parseInt(DEFAULTS.get(key)) : value;
+    }
+
+    /**
+     * Set KEY to VALUE, exiting with a message when VALUE is out of the range of KEY.
+     */
+    public static void set(String key, String value) {
+        Integer parsed = parse(key, value);
+        if (parsed == null) {
+            int[] range = RANGES.get(key);
+            Utils.messageAndExit(range[1] == Integer.MAX_VALUE
+                ? key + " must be a non-negative integer."
+                : key + " must be an integer from " + range[0] + " to " + range[1] + ".");
+        }
+
+        load().setProperty(key, parsed.toString());
+        try (OutputStream out = Files.newOutputStream(CONFIG_FILE.toPath())) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            throw new GitletException("Cannot write " + CONFIG_FILE.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return VALUE as an integer, or null if it is not one within the range of KEY
+     */
+    private static Integer parse(String key, String value) {
+        int[] range = RANGES.get(key);
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed >= range[0] && parsed <= range[1] ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Properties load() {
+        if (properties == null) {
+            properties = new Properties();
+            if (CONFIG_FILE.isFile()) {
+                try (InputStream in = Files.newInputStream(CONFIG_FILE.toPath())) {
+                    properties.load(in);
+                } catch (IOException e) {
+                    throw new GitletException("Cannot read " + CONFIG_FILE.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        return properties;
+    }
+}
@@ -20,5 +20,14 @@ public class Constants {
     public static final File HEAD_FILE = join(GITLET_DIR, "HEAD");
     public static final File LOGS_DIR = join(GITLET_DIR, "logs");
     public static final File STAGING_INDEX = join(GITLET_DIR, "index");
+    public static final File STAGING_JOURNAL = join(GITLET_DIR, "index.journal");
+    public static final File CONFIG_FILE = join(GITLET_DIR, "config");
+    public static final File FORMAT_FILE = join(GITLET_DIR, "format");
+    public static final File COMMIT_GRAPH_FILE = join(GITLET_DIR, "commit-graph");
+    public static final File BITMAPS_FILE = join(GITLET_DIR, "bitmaps");
+    public static final File FSMONITOR_FILE = join(GITLET_DIR, "fsmonitor");
+    public static final File FSMONITOR_COOKIES_DIR = join(GITLET_DIR, "fsmonitor-cookies");
+    public static final File SPARSE_CHECKOUT_FILE = join(GITLET_DIR, "sparse-checkout");
+    public static final File IGNORE_FILE = join(CWD, ".gitletignore");
     public static final String INITIAL_COMMIT_MESSAGE = "initial commit";
 }
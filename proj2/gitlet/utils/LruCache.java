@@ -0,0 +1,69 @@
+package gitlet.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * @className: LruCache
+ * @description: Map bounded to a maximum number of entries, evicting the least recently used one first.
+ * Hits and misses are counted so the bound can be sized from a real workload. Safe to share between threads;
+ * the loader runs outside the lock, so two threads missing the same key may both load it.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class LruCache<K, V> {
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+    private long hits;
+    private long misses;
+
+    public LruCache(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the value cached for KEY, or the one computed by LOADER, which is cached unless it is null
+     */
+    public V get(K key, Function<K, V> loader) {
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits++;
+                return value;
+            }
+            misses++;
+        }
+
+        V value = loader.apply(key);
+        if (value != null && capacity > 0) {
+            synchronized (this) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return hits + " hits, " + misses + " misses, " + entries.size() + "/" + capacity + " entries";
+    }
+}
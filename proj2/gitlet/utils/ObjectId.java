@@ -0,0 +1,186 @@
+package gitlet.utils;
+
+import java.util.Arrays;
+
+/**
+ * @className: ObjectId
+ * @description: The 20 byte sha1 id of an object, held in two longs and an int instead of a 40 character
+ * hexadecimal String: 40 bytes on the heap instead of about 100, equality in three comparisons, and a hash code
+ * taken straight from the id, which is already uniformly distributed. Ids are only turned into hexadecimal at the
+ * edges, to be printed or to name an object in the store, through a lookup table rather than a Formatter.
+ * Ids compare in the order of their bytes, which is also the order of their hexadecimal form.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public final class ObjectId implements Comparable<ObjectId> {
+    public static final int LENGTH = 20;
+    public static final int HEX_LENGTH = LENGTH * 2;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < HEX_DIGITS.length; i++) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+            HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private final long first;
+    private final long second;
+    private final int third;
+
+    private ObjectId(long first, long second, int third) {
+        this.first = first;
+        this.second = second;
+        this.third = third;
+    }
+
+    /**
+     * @return the id whose raw bytes are the LENGTH bytes of BYTES from OFFSET
+     */
+    public static ObjectId fromBytes(byte[] bytes, int offset) {
+        if (bytes.length - offset < LENGTH) {
+            throw new IllegalArgumentException("An object id is " + LENGTH + " bytes long.");
+        }
+        return new ObjectId(readBits(bytes, offset, 8), readBits(bytes, offset + 8, 8),
+            (int) readBits(bytes, offset + 16, 4));
+    }
+
+    public static ObjectId fromBytes(byte[] bytes) {
+        return fromBytes(bytes, 0);
+    }
+
+    /**
+     * @return the id written as HEX, 40 hexadecimal digits
+     */
+    public static ObjectId fromHex(String hex) {
+        if (hex.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("Not an object id: " + hex);
+        }
+        return new ObjectId(readHexBits(hex, 0, 16), readHexBits(hex, 16, 16), (int) readHexBits(hex, 32, 8));
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[LENGTH];
+        copyTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Write the LENGTH raw bytes of this id to BYTES from OFFSET.
+     */
+    public void copyTo(byte[] bytes, int offset) {
+        writeBits(first, 8, bytes, offset);
+        writeBits(second, 8, bytes, offset + 8);
+        writeBits(third, 4, bytes, offset + 16);
+    }
+
+    /**
+     * @return this id as 40 lower-case hexadecimal digits
+     */
+    public String toHex() {
+        char[] hex = new char[HEX_LENGTH];
+        writeHex(first, 16, hex, 0);
+        writeHex(second, 16, hex, 16);
+        writeHex(third, 8, hex, 32);
+        return new String(hex);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId id = (ObjectId) other;
+        return first == id.first && second == id.second && third == id.third;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (first >>> 32);
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        int diff = Long.compareUnsigned(first, other.first);
+        if (diff == 0) {
+            diff = Long.compareUnsigned(second, other.second);
+        }
+        return diff != 0 ? diff : Integer.compareUnsigned(third, other.third);
+    }
+
+    /**
+     * Returns BYTES as lower-case hexadecimal digits.
+     */
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Returns the bytes written as the hexadecimal digits HEX, of even length.
+     */
+    public static byte[] parseHex(CharSequence hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (hexDigit(hex, 2 * i) << 4 | hexDigit(hex, 2 * i + 1));
+        }
+        return bytes;
+    }
+
+    private static long readBits(byte[] bytes, int offset, int count) {
+        long value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value << 8 | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void writeBits(long value, int count, byte[] bytes, int offset) {
+        for (int i = count - 1; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readHexBits(String hex, int offset, int count) {
+        long value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value << 4 | hexDigit(hex, i);
+        }
+        return value;
+    }
+
+    private static void writeHex(long value, int count, char[] hex, int offset) {
+        for (int i = count - 1; i >= 0; i--) {
+            hex[offset + i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private static int hexDigit(CharSequence hex, int index) {
+        int value = hexValue(hex.charAt(index));
+        if (value < 0) {
+            throw new IllegalArgumentException("Not a hexadecimal digit in " + hex);
+        }
+        return value;
+    }
+
+    private static int hexValue(char c) {
+        return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+    }
+}
@@ -1,11 +1,29 @@
 package gitlet.utils;
 
 import gitlet.models.Blob;
+import gitlet.models.Chunk;
 import gitlet.models.Commit;
 import gitlet.models.GitletObject;
+import gitlet.models.Tree;
+import gitlet.storage.Bitmap;
+import gitlet.storage.BitmapIndex;
+import gitlet.storage.CommitCatalog;
+import gitlet.storage.CommitGraph;
+import gitlet.storage.MessageIndex;
+import gitlet.storage.ObjectDatabase;
+import gitlet.worktree.WorkingTree;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static gitlet.utils.Constants.*;
@@ -17,80 +35,337 @@ import static gitlet.utils.Utils.*;
  * @date: 27/01/2024
  **/
 public class RepositoryHelper {
+    private static final String CONTENT_ADDRESSED_FORMAT = "2";
+    private static final ObjectDatabase OBJECT_DATABASE = new ObjectDatabase(OBJECTS_DIR);
+    private static final CommitGraph COMMIT_GRAPH = new CommitGraph(COMMIT_GRAPH_FILE);
+    private static final BitmapIndex BITMAP_INDEX = new BitmapIndex(BITMAPS_FILE, COMMIT_GRAPH);
+    private static final CommitCatalog COMMIT_CATALOG = new CommitCatalog(LOGS_DIR);
+    private static final MessageIndex MESSAGE_INDEX = new MessageIndex(LOGS_DIR, COMMIT_CATALOG);
+    /**
+     * Decoded commits, trees and blobs by full hash. Objects are immutable once stored, so a cached object never
+     * goes stale; blobs read from the store keep only their metadata, their content is always streamed.
+     */
+    private static LruCache<String, GitletObject> objectCache;
+    private static long objectsWritten;
+    private static long objectsSkipped;
+
     public static Commit getCommit(String commitHash) {
         if (commitHash.length() < 2) {
             messageAndExit("The commit hash is too short.");
         }
-        File indexDirectory = getIndexDirectory(commitHash);
-        String rest = commitHash.substring(2);
+        if (commitHash.length() == UID_LENGTH) {
+            Commit commit = (Commit) getObjectCache().get(commitHash, RepositoryHelper::decodeCommit);
+            if (commit != null) {
+                return commit;
+            }
+        }
 
-        // List all files in the directory matching the abbreviated ID
-        List<String> matchingFiles = Utils.plainFilenamesIn(indexDirectory).
-            stream().
-            filter(name -> name.startsWith(rest)).
-            collect(Collectors.toList());
+        // List all objects matching the abbreviated ID, loose or packed
+        List<String> matchingObjects = OBJECT_DATABASE.findByPrefix(commitHash, 2);
 
-        if (matchingFiles.isEmpty()) {
+        if (matchingObjects.isEmpty()) {
             messageAndExit("No commit with that id exists.");
-        } else if (matchingFiles.size() > 1) {
+        } else if (matchingObjects.size() > 1) {
             messageAndExit("Multiple commits with that id exist.");
         }
 
-        return Utils.readObject(Utils.join(indexDirectory, matchingFiles.get(0)), Commit.class);
+        return (Commit) getObjectCache().get(matchingObjects.get(0), RepositoryHelper::decodeCommit);
     }
 
     public static Blob getBlob(String blobHash) {
-        File indexDirectory = getIndexDirectory(blobHash);
-        String rest = blobHash.substring(2);
+        return (Blob) getObjectCache().get(blobHash, hash -> Blob.CODEC.decode(hash, OBJECT_DATABASE.read(hash)));
+    }
+
+    public static Tree getTree(String treeHash) {
+        return (Tree) getObjectCache().get(treeHash, hash -> Tree.CODEC.decode(hash, OBJECT_DATABASE.read(hash)));
+    }
+
+    private static Commit decodeCommit(String commitHash) {
+        byte[] data = OBJECT_DATABASE.read(commitHash);
+        return data == null ? null : Commit.CODEC.decode(commitHash, data);
+    }
+
+    private static synchronized LruCache<String, GitletObject> getObjectCache() {
+        if (objectCache == null) {
+            objectCache = new LruCache<>(Config.getInt(Config.OBJECT_CACHE_SIZE));
+            Trace.register("object cache", objectCache::toString);
+        }
+        return objectCache;
+    }
+
+    /**
+     * Write the content of the blob BLOBHASH to FILE, streaming it out of the object store.
+     */
+    public static void restoreBlob(String blobHash, File file) {
+        Blob.restore(blobHash, OBJECT_DATABASE.open(blobHash), file);
+    }
 
-        return Utils.readObject(Utils.join(indexDirectory, rest), Blob.class);
+    /**
+     * Write the content of the blob BLOBHASH to OUT, streaming it out of the object store.
+     */
+    public static void writeBlobContent(String blobHash, OutputStream out) {
+        Blob.writeContent(blobHash, OBJECT_DATABASE.open(blobHash), out);
     }
 
-    private static File getIndexDirectory(String hash) {
-        String index = hash.substring(0, 2);
-        return Utils.join(OBJECTS_DIR, index);
+    /**
+     * Write the bytes of the chunk CHUNKHASH to OUT, streaming them out of the object store.
+     */
+    public static void writeChunkContent(String chunkHash, OutputStream out) {
+        Chunk.writeContent(chunkHash, OBJECT_DATABASE.open(chunkHash), out);
+    }
+
+    /**
+     * @return the stored bytes of the object HASH, or null if it does not exist
+     */
+    public static byte[] readObject(String hash) {
+        return OBJECT_DATABASE.read(hash);
     }
 
     public static void persistObject(String hash, GitletObject object) {
-        File indexDirectory = getIndexDirectory(hash);
-        indexDirectory.mkdirs();
-        String rest = hash.substring(2);
+        persistObject(hash, object::encode);
+    }
 
-        Utils.writeObject(Utils.join(indexDirectory, rest), object);
+    /**
+     * Persist an object already encoded, such as a tree whose hash is that of its encoding.
+     */
+    public static void persistObject(String hash, byte[] encoded) {
+        persistObject(hash, () -> encoded);
     }
 
-    public static boolean objectExists(String hash) {
-        File indexDirectory = getIndexDirectory(hash);
-        String rest = hash.substring(2);
+    /**
+     * Persist the object HASH unless it is already stored, in which case ENCODER is not even called,
+     * so an object stored again costs neither its encoding, e.g. as a delta, nor any disk access.
+     */
+    public static void persistObject(String hash, Supplier<byte[]> encoder) {
+        if (OBJECT_DATABASE.isStored(hash)) {
+            countWrite(false);
+            return;
+        }
+        OBJECT_DATABASE.write(hash, encoder.get());
+        countWrite(true);
+    }
 
-        if (!indexDirectory.exists()) {
-            messageAndExit("No commit with that id exists.");
+    private static synchronized void countWrite(boolean written) {
+        if (objectsWritten == 0 && objectsSkipped == 0) {
+            Trace.register("object writes", () -> String.format("%d written, %d skipped as already stored (%.1f%%)",
+                objectsWritten, objectsSkipped, 100.0 * objectsSkipped / (objectsWritten + objectsSkipped)));
+        }
+        if (written) {
+            objectsWritten++;
+        } else {
+            objectsSkipped++;
         }
+    }
 
-        List<String> matchingFiles = Utils.
-            plainFilenamesIn(indexDirectory).stream().filter(name -> name.startsWith(rest)).
-            collect(Collectors.toList());
+    public static boolean objectExists(String hash) {
+        List<String> matchingObjects = OBJECT_DATABASE.findByPrefix(hash, 2);
 
-        if (matchingFiles.isEmpty()) {
+        if (matchingObjects.isEmpty()) {
             messageAndExit("No commit with that id exists.");
-        } else if (matchingFiles.size() > 1) {
+        } else if (matchingObjects.size() > 1) {
             messageAndExit("Multiple commits with that id exist.");
         }
-        return matchingFiles.size() == 1;
+        return matchingObjects.size() == 1;
     }
 
+    /**
+     * Fold the loose objects written since the last repack into a pack.
+     * While packing, each blob of DELTABASES is stored again as a delta against the blob it maps to, and every
+     * other blob of DEPTHS in full, so delta chains follow the history of each file with their depth bounded by
+     * core.deltaDepth. The depth of a blob in DEPTHS is that of its chain if every delta is written; a delta
+     * not worth it is written in full instead, which only makes the chains below it shorter.
+     */
+    public static void repack(Map<ObjectId, ObjectId> deltaBases, Map<ObjectId, Integer> depths) {
+        OBJECT_DATABASE.repack(hash -> {
+            ObjectId id = ObjectId.fromHex(hash);
+            byte[] stored = OBJECT_DATABASE.read(hash);
+            if (!depths.containsKey(id) || Blob.isChunked(hash, stored)) {
+                return stored;
+            }
 
-    public static Commit getBranchTipCommit(String branchName) {
-        return RepositoryHelper.getCommit(readContentsAsString(join(REFS_HEADS_DIR, branchName)));
+            Blob blob = getBlob(hash);
+            ObjectId baseId = deltaBases.get(id);
+            if (baseId != null && !Blob.isChunked(baseId.toHex(), OBJECT_DATABASE.read(baseId.toHex()))) {
+                byte[] encoded = blob.encodeDelta(getBlob(baseId.toHex()), depths.get(id));
+                if (encoded != null) {
+                    return encoded;
+                }
+            }
+            // the blob may be stored as a delta since it was added, the chain starts again from a full copy
+            return blob.encode();
+        });
+    }
+
+    /**
+     * Record COMMIT in the commit graph, together with any of its ancestors missing from it,
+     * e.g. the commits of a repository written before the commit graph existed.
+     */
+    public static void addToCommitGraph(Commit commit) {
+        Deque<Commit> pending = new ArrayDeque<>();
+        pending.push(commit);
+        while (!pending.isEmpty()) {
+            Commit next = pending.peek();
+            List<String> missingParents = next.getParentHashes().stream()
+                .filter(parentHash -> !COMMIT_GRAPH.contains(parentHash))
+                .collect(Collectors.toList());
+            if (missingParents.isEmpty()) {
+                pending.pop();
+                COMMIT_GRAPH.add(next.getSha1Hash(), next.getParentHashes(), next.getTimeStamp().getTime());
+            } else {
+                missingParents.forEach(parentHash -> pending.push(getCommit(parentHash)));
+            }
+        }
+    }
+
+    /**
+     * @return the hash of the latest common ancestor of COMMIT1 and COMMIT2, found in the commit graph
+     */
+    public static String findMergeBase(Commit commit1, Commit commit2) {
+        addToCommitGraph(commit1);
+        addToCommitGraph(commit2);
+        return COMMIT_GRAPH.mergeBase(commit1.getSha1Hash(), commit2.getSha1Hash());
+    }
+
+    /**
+     * @return whether ANCESTOR is reachable from COMMIT, COMMIT itself included
+     */
+    public static boolean isAncestor(Commit ancestor, Commit commit) {
+        addToCommitGraph(ancestor);
+        addToCommitGraph(commit);
+        return reachable(commit).get(COMMIT_GRAPH.find(ancestor.getSha1Hash()));
     }
 
+    /**
+     * @return the number of commits reachable from COMMIT but not from OTHER, then the other way around
+     */
+    public static int[] countAheadBehind(Commit commit, Commit other) {
+        addToCommitGraph(commit);
+        addToCommitGraph(other);
+        Bitmap commitHistory = reachable(commit);
+        Bitmap otherHistory = reachable(other);
+        return new int[]{commitHistory.andNotCardinality(otherHistory), otherHistory.andNotCardinality(commitHistory)};
+    }
+
+    private static Bitmap reachable(Commit commit) {
+        return BITMAP_INDEX.reachable(COMMIT_GRAPH.find(commit.getSha1Hash()));
+    }
+
+    public static void addToCommitCatalog(Commit commit) {
+        getCommitCatalog().add(commit.getSha1Hash(), commit.getTimeStamp(), commit.getFirstParentHash(),
+            commit.getSecondParentHash(), commit.getMessage());
+        MESSAGE_INDEX.update();
+    }
+
+    /**
+     * @return the commits whose message is exactly MESSAGE, the newest first. The message index narrows
+     * them down to the commits holding all its words, only a message without any word is searched linearly.
+     */
+    public static List<CommitCatalog.Entry> findCommitsByMessage(String message) {
+        List<CommitCatalog.Entry> commits = new ArrayList<>();
+        List<String> words = MessageIndex.tokenize(message);
+        if (words.isEmpty()) {
+            visitCommitsNewestFirst(entry -> {
+                if (entry.getMessage().equals(message)) {
+                    commits.add(entry);
+                }
+                return true;
+            });
+            return commits;
+        }
+
+        COMMIT_CATALOG.visitPositions(getMessageIndex().findAll(words), entry -> {
+            if (entry.getMessage().equals(message)) {
+                commits.add(entry);
+            }
+            return true;
+        });
+        return commits;
+    }
+
+    /**
+     * @return the commits whose message holds every word of QUERY, in any case, the newest first
+     */
+    public static List<CommitCatalog.Entry> findCommitsByWords(String query) {
+        List<String> words = MessageIndex.tokenize(query);
+        return words.isEmpty() ? new ArrayList<>() : entriesAt(getMessageIndex().findAll(words));
+    }
+
+    /**
+     * @return the commits whose message holds a word starting with PREFIX, in any case, the newest first
+     */
+    public static List<CommitCatalog.Entry> findCommitsByPrefix(String prefix) {
+        return entriesAt(getMessageIndex().findPrefix(prefix));
+    }
+
+    /**
+     * Rebuild the message index from the whole commit catalog.
+     */
+    public static void reindex() {
+        getCommitCatalog();
+        MESSAGE_INDEX.rebuild();
+    }
 
-    public static String readFileFromRepositoryAsString(String fileName) {
-        return readContentsAsString(join(CWD, fileName));
+    private static List<CommitCatalog.Entry> entriesAt(long[] positions) {
+        List<CommitCatalog.Entry> commits = new ArrayList<>();
+        COMMIT_CATALOG.visitPositions(positions, commits::add);
+        return commits;
     }
 
+    /**
+     * The index is brought up to date before it is searched, so a repository that has never been indexed
+     * pays for it once instead of on every search.
+     */
+    private static MessageIndex getMessageIndex() {
+        getCommitCatalog();
+        MESSAGE_INDEX.update();
+        return MESSAGE_INDEX;
+    }
+
+    /**
+     * Hand every commit ever written to VISITOR, the newest first, until it returns false.
+     */
+    public static void visitCommitsNewestFirst(Predicate<CommitCatalog.Entry> visitor) {
+        getCommitCatalog().visitNewestFirst(visitor);
+    }
+
+    /**
+     * Repositories written before the catalog existed kept one file per commit under .gitlet/logs,
+     * they are moved into the catalog from the oldest commit the first time it is used.
+     */
+    private static CommitCatalog getCommitCatalog() {
+        if (!COMMIT_CATALOG.exists()) {
+            List<String> legacyLogs = plainFilenamesIn(LOGS_DIR).stream()
+                .filter(name -> name.length() == UID_LENGTH)
+                .collect(Collectors.toList());
+            legacyLogs.stream()
+                .map(RepositoryHelper::getCommit)
+                .sorted(Comparator.comparing(Commit::getTimeStamp))
+                .forEach(commit -> COMMIT_CATALOG.add(commit.getSha1Hash(), commit.getTimeStamp(),
+                    commit.getFirstParentHash(), commit.getSecondParentHash(), commit.getMessage()));
+            legacyLogs.forEach(name -> join(LOGS_DIR, name).delete());
+        }
+        return COMMIT_CATALOG;
+    }
+
+    /**
+     * Whether the repository predates blobs identified by their content alone, .gitlet/format holding
+     * CONTENT_ADDRESSED_FORMAT since then. Such a repository is rewritten by the migrate command.
+     */
+    public static boolean needsMigration() {
+        return !FORMAT_FILE.isFile() || !readContentsAsString(FORMAT_FILE).trim().equals(CONTENT_ADDRESSED_FORMAT);
+    }
+
+    public static void writeRepositoryFormat() {
+        writeContents(FORMAT_FILE, CONTENT_ADDRESSED_FORMAT + "\n");
+    }
+
+    public static Commit getBranchTipCommit(String branchName) {
+        return RepositoryHelper.getCommit(readContentsAsString(join(REFS_HEADS_DIR, branchName)));
+    }
+
+
     public static boolean isFileExistInRepository(String fileName) {
-        return plainFilenamesIn(CWD).stream().anyMatch(name -> name.equals(fileName));
+        return WorkingTree.isFile(fileName);
     }
 
     public static boolean branchExists(String branchName) {
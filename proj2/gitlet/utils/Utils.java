@@ -7,7 +7,6 @@ import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Formatter;
 import java.util.List;
 
 
@@ -54,11 +53,33 @@ public class Utils {
                     throw new IllegalArgumentException("improper type to sha1");
                 }
             }
-            Formatter result = new Formatter();
-            for (byte b : md.digest()) {
-                result.format("%02x", b);
-            }
-            return result.toString();
+            return ObjectId.toHex(md.digest());
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /**
+     * Returns the 20 raw bytes of the hexadecimal SHA-1 hash HEX.
+     */
+    public static byte[] fromHex(String hex) {
+        return ObjectId.parseHex(hex);
+    }
+
+    /**
+     * Returns BYTES as a lower-case hexadecimal numeral.
+     */
+    public static String toHex(byte[] bytes) {
+        return ObjectId.toHex(bytes);
+    }
+
+    /**
+     * Returns a new SHA-1 MessageDigest, for hashing contents streamed in
+     * pieces.
+     */
+    public static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
         } catch (NoSuchAlgorithmException excp) {
             throw new IllegalArgumentException("System does not support SHA-1");
         }
@@ -244,6 +265,23 @@ public class Utils {
         }
     }
 
+    /**
+     * Return an object of type T deserialized from BYTES, casting it to
+     * EXPECTEDCLASS.  Throws IllegalArgumentException in case of problems.
+     */
+    public static <T extends Serializable> T deserialize(byte[] bytes, Class<T> expectedClass) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
 
 
     /* MESSAGES AND ERROR REPORTING */
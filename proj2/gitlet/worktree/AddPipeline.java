@@ -0,0 +1,212 @@
+package gitlet.worktree;
+
+import gitlet.models.Blob;
+import gitlet.utils.Config;
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+import gitlet.utils.Trace;
+import gitlet.utils.Utils;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @className: AddPipeline
+ * @description: Stores the working files given to add in two stages of add.workers threads each: readers stat
+ * and read the files, then hand them through a bounded queue to the workers that hash them, compress them and
+ * write them to the object store. The queue holds at most QUEUE_PER_WORKER files per worker, so reading never
+ * runs far ahead of storing. Files of core.chunkThreshold bytes or more go through the queue unread, and are
+ * streamed into chunks by the worker. The first failure stops both stages and is reported once they are done.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class AddPipeline {
+    private static final int QUEUE_PER_WORKER = 4;
+    private static final ReadFile END = new ReadFile(null, null, null, null);
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Map<String, StoredFile> stored = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final long chunkThreshold = Config.getInt(Config.CHUNK_THRESHOLD);
+
+    /**
+     * Hash and store the working files FILES.
+     *
+     * @param files the blob hash of the version of each file in the head commit, by path, null for a new
+     *              file; a file still having that version is not stored again
+     * @return the stat data and the blob hash of each file, by path
+     */
+    public static Map<String, StoredFile> store(Map<String, ObjectId> files) {
+        return new AddPipeline().run(files);
+    }
+
+    private Map<String, StoredFile> run(Map<String, ObjectId> files) {
+        long start = System.nanoTime();
+        int workers = Math.max(1, Math.min(Config.getInt(Config.ADD_WORKERS), files.size()));
+        run(files, workers);
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        double megabytes = bytes.get() / (1024.0 * 1024.0);
+        Trace.register("add", () -> String.format("%d files, %.1f MB stored in %.2fs, %.0f files/s, %.1f MB/s",
+            stored.size(), megabytes, seconds, stored.size() / seconds, megabytes / seconds));
+        return stored;
+    }
+
+    private void run(Map<String, ObjectId> files, int workers) {
+        if (workers == 1) {
+            files.forEach((path, headHash) -> store(read(path, headHash)));
+            return;
+        }
+
+        BlockingQueue<ReadFile> queue = new ArrayBlockingQueue<>(QUEUE_PER_WORKER * workers);
+        ExecutorService readers = Executors.newFixedThreadPool(workers, daemon("add-reader"));
+        ExecutorService storers = Executors.newFixedThreadPool(workers, daemon("add-storer"));
+        try {
+            for (int i = 0; i < workers; i++) {
+                storers.execute(() -> drain(queue));
+            }
+            files.forEach((path, headHash) -> readers.execute(() -> {
+                if (failure.get() == null) {
+                    try {
+                        queue.put(read(path, headHash));
+                    } catch (InterruptedException e) {
+                        fail(new GitletException("Add interrupted."));
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    }
+                }
+            }));
+
+            readers.shutdown();
+            awaitTermination(readers);
+            for (int i = 0; i < workers; i++) {
+                queue.put(END);
+            }
+            storers.shutdown();
+            awaitTermination(storers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new GitletException("Add interrupted."));
+        } finally {
+            readers.shutdownNow();
+            storers.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Store the files of QUEUE until the end marker. After a failure the files are only taken off the queue,
+     * so that no reader stays blocked on it.
+     */
+    private void drain(BlockingQueue<ReadFile> queue) {
+        try {
+            for (ReadFile file = queue.take(); file != END; file = queue.take()) {
+                if (failure.get() == null) {
+                    try {
+                        store(file);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            fail(new GitletException("Add interrupted."));
+        }
+    }
+
+    private ReadFile read(String path, ObjectId headHash) {
+        File file = WorkingTree.file(path);
+        // taken before the content, a change while reading shows in the next stat
+        FileStat stat = FileStat.of(file);
+        if (stat == null) {
+            throw new GitletException("File does not exist: " + path);
+        }
+        byte[] content = stat.getSize() < chunkThreshold ? Utils.readContents(file) : null;
+        return new ReadFile(path, headHash, stat, content);
+    }
+
+    private void store(ReadFile file) {
+        File workingFile = WorkingTree.file(file.path);
+        String headHash = file.headHash == null ? null : file.headHash.toHex();
+        Blob blob;
+        if (file.content == null) {
+            blob = Blob.store(file.path, workingFile, headHash);
+            bytes.addAndGet(file.stat.getSize());
+        } else {
+            blob = new Blob(file.content);
+            bytes.addAndGet(file.content.length);
+            if (!blob.getHash().equals(headHash)) {
+                blob.persist(headHash);
+            }
+        }
+        stored.put(file.path, new StoredFile(file.stat, ObjectId.fromHex(blob.getHash())));
+    }
+
+    private void fail(RuntimeException e) {
+        failure.compareAndSet(null, e);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void awaitTermination(ExecutorService pool) throws InterruptedException {
+        while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+            continue;
+        }
+    }
+
+    /**
+     * A file read by a reader, its content null when it is to be streamed.
+     */
+    private static class ReadFile {
+        private final String path;
+        private final ObjectId headHash;
+        private final FileStat stat;
+        private final byte[] content;
+
+        ReadFile(String path, ObjectId headHash, FileStat stat, byte[] content) {
+            this.path = path;
+            this.headHash = headHash;
+            this.stat = stat;
+            this.content = content;
+        }
+    }
+
+    /**
+     * The stat data of a working file taken before it was read, and the hash of the blob it was stored as.
+     */
+    public static class StoredFile {
+        private final FileStat stat;
+        private final ObjectId blobHash;
+
+        StoredFile(FileStat stat, ObjectId blobHash) {
+            this.stat = stat;
+            this.blobHash = blobHash;
+        }
+
+        public FileStat getStat() {
+            return stat;
+        }
+
+        public ObjectId getBlobHash() {
+            return blobHash;
+        }
+    }
+}
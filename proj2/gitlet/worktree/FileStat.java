@@ -0,0 +1,94 @@
+package gitlet.worktree;
+
+import gitlet.utils.GitletException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @className: FileStat
+ * @description: The size, modification time and file key (the inode on unix) of a working file.
+ * A file whose stat data is unchanged since it was hashed is assumed to still have the same content,
+ * unless it was modified within the same timestamp tick it was hashed in, see {@link #isRacy(long)}.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class FileStat implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long size;
+    private final long modifiedTime;
+    private final String fileKey;
+
+    public FileStat(long size, long modifiedTime, String fileKey) {
+        this.size = size;
+        this.modifiedTime = modifiedTime;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * @return the stat data of FILE, or null if it is not a regular file
+     */
+    public static FileStat of(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new FileStat(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                String.valueOf(attributes.fileKey()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new GitletException("Cannot stat " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the modification time in nanoseconds since the epoch
+     */
+    public long getModifiedTime() {
+        return modifiedTime;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * A file modified no earlier than the index was written may have been modified again within the
+     * same timestamp tick after it was hashed, without its stat data changing.
+     *
+     * @param indexTime the modification time of the index, in nanoseconds since the epoch
+     */
+    public boolean isRacy(long indexTime) {
+        return modifiedTime >= indexTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileStat stat = (FileStat) o;
+        return size == stat.size && modifiedTime == stat.modifiedTime && Objects.equals(fileKey, stat.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, modifiedTime, fileKey);
+    }
+}
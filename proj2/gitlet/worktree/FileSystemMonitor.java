@@ -0,0 +1,615 @@
+package gitlet.worktree;
+
+import gitlet.utils.GitletException;
+import gitlet.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static gitlet.utils.Constants.CWD;
+import static gitlet.utils.Constants.FSMONITOR_COOKIES_DIR;
+import static gitlet.utils.Constants.FSMONITOR_FILE;
+import static gitlet.utils.Constants.GITLET_DIR;
+import static gitlet.utils.Constants.IGNORE_FILE;
+
+/**
+ * @className: FileSystemMonitor
+ * @description: A background process watching the working tree through a WatchService, so that commands
+ * can learn which files exist and which paths changed without scanning the working directory.
+ * <p>
+ * The monitor listens on a loopback port, written with its instance id and a random secret to .gitlet/fsmonitor,
+ * which only its owner may read. Every request starts with the secret, the monitor closes any connection
+ * that does not, so that other local users can neither list the working tree nor stop the monitor.
+ * Every change it sees gets the next sequence number, and a token "instance:sequence" names a point in
+ * its history. A query sends the token of the previous query and receives the files of the working tree,
+ * a new token, and the paths changed since the given token. The changed paths are unknown when the token
+ * comes from another instance, or predates an overflow of the event queue.
+ * <p>
+ * Before answering, the monitor creates a cookie file in a watched directory and waits for its event:
+ * the changes made before the query then have all been seen, since events arrive in order.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class FileSystemMonitor {
+    private static final String QUERY = "query";
+    private static final String STOP = "stop";
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final long COOKIE_TIMEOUT = 2000;
+    private static final long START_TIMEOUT = 10000;
+    private static final long ROOT_CHECK_INTERVAL = 1000;
+    private static final char SEPARATOR = '/';
+
+    private final String instanceId = Long.toHexString(new SecureRandom().nextLong());
+    private final String secret = newSecret();
+    private final Path root = CWD.toPath().toAbsolutePath().normalize();
+    private final Path cookies = FSMONITOR_COOKIES_DIR.toPath().toAbsolutePath().normalize();
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<String> files = new HashSet<>();
+    /**
+     * Ignored directories are not watched and ignored files not reported, tracked or not, so the staging area
+     * stats them itself. Read again when .gitletignore changes
+     */
+    private IgnoreRules ignoreRules = IgnoreRules.read();
+    /**
+     * The sequence number of the last change of each path
+     */
+    private final Map<String, Long> changes = new HashMap<>();
+    private long sequence;
+    /**
+     * Tokens older than this cannot tell what changed, the events in between were lost
+     */
+    private long trustedSince;
+    private long cookieCount;
+    private long lastCookieSeen;
+    private volatile boolean running = true;
+    private ServerSocket server;
+
+    private FileSystemMonitor() throws IOException {
+        this.watchService = root.getFileSystem().newWatchService();
+    }
+
+    /**
+     * The working tree as seen by the monitor when it answered a query.
+     */
+    public static class Snapshot {
+        private final String token;
+        private final Set<String> files;
+        private final Set<String> changedPaths;
+
+        Snapshot(String token, Set<String> files, Set<String> changedPaths) {
+            this.token = token;
+            this.files = files;
+            this.changedPaths = changedPaths;
+        }
+
+        /**
+         * @return the token to send with the next query
+         */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * @return the paths of every file in the working tree
+         */
+        public Set<String> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return the paths changed since the token of the query, or null if the monitor cannot tell
+         */
+        public Set<String> getChangedPaths() {
+            return changedPaths;
+        }
+    }
+
+    /**
+     * Ask the running monitor for the state of the working tree.
+     *
+     * @param token the token of a previous query, or null
+     * @return the answer, or null if no monitor is running
+     */
+    public static Snapshot query(String token) {
+        try (Connection connection = Connection.open()) {
+            if (connection == null) {
+                return null;
+            }
+            connection.out.writeUTF(connection.secret);
+            connection.out.writeUTF(QUERY);
+            connection.out.writeUTF(token == null ? "" : token);
+            connection.out.flush();
+
+            String newToken = connection.in.readUTF();
+            Set<String> files = readPaths(connection.in);
+            Set<String> changedPaths = connection.in.readBoolean() ? readPaths(connection.in) : null;
+            return new Snapshot(newToken, files, changedPaths);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Start a monitor for this repository in a background process, unless one is already running.
+     */
+    public static void start() {
+        if (query(null) != null) {
+            Utils.messageAndExit("The file system monitor is already running.");
+        }
+
+        FSMONITOR_FILE.delete();
+        File java = Utils.join(System.getProperty("java.home"), "bin", "java");
+        ProcessBuilder builder = new ProcessBuilder(java.getPath(), "-cp", System.getProperty("java.class.path"),
+            "gitlet.Main", "fsmonitor", "run");
+        builder.directory(CWD);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        try {
+            Process process = builder.start();
+            long deadline = System.currentTimeMillis() + START_TIMEOUT;
+            while (!FSMONITOR_FILE.isFile() && process.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } catch (IOException e) {
+            throw new GitletException("Cannot start the file system monitor: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!FSMONITOR_FILE.isFile()) {
+            Utils.messageAndExit("The file system monitor could not be started.");
+        }
+    }
+
+    /**
+     * Ask the running monitor to exit.
+     */
+    public static void stop() {
+        try (Connection connection = Connection.open()) {
+            if (connection == null) {
+                Utils.messageAndExit("The file system monitor is not running.");
+                return;
+            }
+            connection.out.writeUTF(connection.secret);
+            connection.out.writeUTF(STOP);
+            connection.out.flush();
+            connection.in.readBoolean();
+        } catch (IOException e) {
+            Utils.messageAndExit("The file system monitor is not running.");
+        }
+    }
+
+    /**
+     * Run the monitor in this process until it is stopped or the working tree goes away.
+     */
+    public static void run() {
+        try {
+            new FileSystemMonitor().serve();
+        } catch (IOException e) {
+            throw new GitletException("File system monitor failed: " + e.getMessage());
+        }
+    }
+
+    private void serve() throws IOException {
+        Files.createDirectories(cookies);
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            this.server = server;
+            synchronized (this) {
+                cookies.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+                registerTree(root, false);
+            }
+
+            Thread watcher = new Thread(this::watch, "fsmonitor-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+
+            writeStateFile(server.getLocalPort());
+            Runtime.getRuntime().addShutdownHook(new Thread(this::removeStateFile));
+            while (running) {
+                try (Socket socket = server.accept()) {
+                    answer(socket);
+                } catch (IOException e) {
+                    // also thrown by accept once shutdown closed the socket
+                    continue;
+                }
+            }
+        } finally {
+            running = false;
+            watchService.close();
+            removeStateFile();
+        }
+    }
+
+    /**
+     * Stop serving: the loop of serve ends, and with it the process.
+     */
+    private void shutdown() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException e) {
+            return;
+        }
+    }
+
+    private static String newSecret() {
+        byte[] secret = new byte[16];
+        new SecureRandom().nextBytes(secret);
+        return Utils.toHex(secret);
+    }
+
+    /**
+     * Write the port, the instance id and the secret to the state file, created readable by its owner only
+     * where the file system has POSIX permissions, and moved in place once complete.
+     */
+    private void writeStateFile(int port) throws IOException {
+        Path state = FSMONITOR_FILE.toPath().toAbsolutePath();
+        Path temp;
+        if (state.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            temp = Files.createTempFile(state.getParent(), "fsmonitor-", ".tmp", PosixFilePermissions.asFileAttribute(
+                EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        } else {
+            temp = Files.createTempFile(state.getParent(), "fsmonitor-", ".tmp");
+            File file = temp.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+        }
+        Files.writeString(temp, port + " " + instanceId + " " + secret);
+        Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void removeStateFile() {
+        if (FSMONITOR_FILE.isFile() && Utils.readContentsAsString(FSMONITOR_FILE).endsWith(" " + secret)) {
+            FSMONITOR_FILE.delete();
+        }
+    }
+
+    private void answer(Socket socket) throws IOException {
+        socket.setSoTimeout(CONNECT_TIMEOUT);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!MessageDigest.isEqual(in.readUTF().getBytes(StandardCharsets.UTF_8),
+            secret.getBytes(StandardCharsets.UTF_8))) {
+            return;
+        }
+        String request = in.readUTF();
+        if (request.equals(STOP)) {
+            shutdown();
+            out.writeBoolean(true);
+            out.flush();
+            return;
+        }
+
+        String token = in.readUTF();
+        boolean synced = sync();
+        synchronized (this) {
+            out.writeUTF(instanceId + ":" + sequence);
+            writePaths(out, files);
+
+            Set<String> changedPaths = synced ? changedSince(token) : null;
+            out.writeBoolean(changedPaths != null);
+            if (changedPaths != null) {
+                writePaths(out, changedPaths);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Wait until every change made before this call has been seen, by waiting for the event of a new cookie.
+     *
+     * @return false if the cookie event did not arrive in time
+     */
+    private boolean sync() throws IOException {
+        long cookie;
+        synchronized (this) {
+            cookie = ++cookieCount;
+        }
+        Path cookieFile = cookies.resolve(Long.toString(cookie));
+        Files.deleteIfExists(cookieFile);
+        Files.createFile(cookieFile);
+        try {
+            synchronized (this) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COOKIE_TIMEOUT);
+                while (lastCookieSeen < cookie && running) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        return false;
+                    }
+                    wait(TimeUnit.NANOSECONDS.toMillis(left) + 1);
+                }
+                return lastCookieSeen >= cookie;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            Files.deleteIfExists(cookieFile);
+        }
+    }
+
+    /**
+     * @return the paths changed since TOKEN, or null if it cannot be told
+     */
+    private Set<String> changedSince(String token) {
+        int colon = token.indexOf(':');
+        if (colon < 0 || !token.substring(0, colon).equals(instanceId)) {
+            return null;
+        }
+        long since;
+        try {
+            since = Long.parseLong(token.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (since < trustedSince || since > sequence) {
+            return null;
+        }
+
+        Set<String> changedPaths = new HashSet<>();
+        changes.forEach((path, changed) -> {
+            if (changed > since) {
+                changedPaths.add(path);
+            }
+        });
+        return changedPaths;
+    }
+
+    private void watch() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.poll(ROOT_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (key == null) {
+                // not every file system invalidates the key of a deleted directory
+                if (!Files.isDirectory(root) || !GITLET_DIR.isDirectory()) {
+                    shutdown();
+                }
+                continue;
+            }
+            synchronized (this) {
+                handle(key);
+                // a key reset while the cookie was on its way is queued again, see it before the cookie counts
+                for (WatchKey ready = watchService.poll(); ready != null; ready = watchService.poll()) {
+                    handle(ready);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan();
+                continue;
+            }
+
+            Path child = ((Path) key.watchable()).resolve((Path) event.context());
+            if (directory == null) {
+                seeCookie(child);
+                continue;
+            }
+            if (directory.equals(root) && child.getFileName().toString().equals(GITLET_DIR.getName())) {
+                continue;
+            }
+
+            String path = relativePath(child);
+            if (path.equals(IGNORE_FILE.getName())) {
+                ignoreRules = IgnoreRules.read();
+                rescan();
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                remove(path);
+            } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    registerTree(child, true);
+                }
+            } else if (Files.isRegularFile(child)) {
+                // a directory that became ignored is still watched until the monitor restarts
+                if (!ignoreRules.isIgnored(path)) {
+                    files.add(path);
+                    changes.put(path, ++sequence);
+                }
+            } else {
+                remove(path);
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+            if (root.equals(directory)) {
+                // the working tree itself is gone
+                shutdown();
+            }
+        }
+    }
+
+    private void seeCookie(Path cookieFile) {
+        try {
+            lastCookieSeen = Math.max(lastCookieSeen, Long.parseLong(cookieFile.getFileName().toString()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+    }
+
+    /**
+     * Forget PATH, and every file below it if it was a directory.
+     */
+    private void remove(String path) {
+        if (files.remove(path)) {
+            changes.put(path, ++sequence);
+        }
+        String prefix = path + SEPARATOR;
+        files.removeIf(file -> {
+            if (file.startsWith(prefix)) {
+                changes.put(file, ++sequence);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Events were lost or the ignore rules changed: list the working tree again, and distrust every token given
+     * so far.
+     */
+    private void rescan() {
+        files.clear();
+        registerTree(root, false);
+        trustedSince = ++sequence;
+    }
+
+    /**
+     * Watch DIRECTORY and every directory below it, adding the files found.
+     *
+     * @param changed whether the files found are new, to be reported as changed
+     */
+    private void registerTree(Path directory, boolean changed) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                    if (dir.getParent() != null && dir.getParent().equals(root)
+                        && dir.getFileName().toString().equals(GITLET_DIR.getName())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (!dir.equals(root)
+                        && ignoreRules.isIgnored(relativePath(dir), dir.getFileName().toString(), true)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    directories.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() || Files.isRegularFile(file)) {
+                        String path = relativePath(file);
+                        if (ignoreRules.isIgnored(path, file.getFileName().toString(), false)) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        if (files.add(path) || changed) {
+                            changes.put(path, ++sequence);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new GitletException("Cannot watch " + relativePath(directory) + ": " + e.getMessage());
+        }
+    }
+
+    private String relativePath(Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, SEPARATOR);
+    }
+
+    private static void writePaths(DataOutputStream out, Set<String> paths) throws IOException {
+        out.writeInt(paths.size());
+        for (String path : paths) {
+            out.writeUTF(path);
+        }
+    }
+
+    private static Set<String> readPaths(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Set<String> paths = new HashSet<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            paths.add(in.readUTF());
+        }
+        return paths;
+    }
+
+    /**
+     * A connection to the running monitor.
+     */
+    private static class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final String secret;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket, String secret) throws IOException {
+            this.socket = socket;
+            this.secret = secret;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * @return a connection to the monitor of this repository, or null if none is running
+         */
+        static Connection open() {
+            if (!FSMONITOR_FILE.isFile()) {
+                return null;
+            }
+            String[] state = Utils.readContentsAsString(FSMONITOR_FILE).trim().split(" ");
+            if (state.length < 3) {
+                return null;
+            }
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(state[0])), CONNECT_TIMEOUT);
+                socket.setSoTimeout(CONNECT_TIMEOUT);
+                return new Connection(socket, state[2]);
+            } catch (IOException | NumberFormatException e) {
+                try {
+                    socket.close();
+                } catch (IOException closing) {
+                    return null;
+                }
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
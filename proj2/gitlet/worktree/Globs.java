@@ -0,0 +1,37 @@
+package gitlet.worktree;
+
+import java.util.regex.Pattern;
+
+/**
+ * @className: Globs
+ * @description: Translation of the glob patterns of .gitletignore and of the sparse checkout into regular
+ * expressions over '/'-separated paths: '*' and '?' stay within one directory, '**' crosses directories, and
+ * every other character matches itself.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+final class Globs {
+    private Globs() {
+    }
+
+    /**
+     * @return a regular expression matching exactly the paths GLOB names
+     */
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+}
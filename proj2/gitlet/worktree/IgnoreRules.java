@@ -0,0 +1,205 @@
+package gitlet.worktree;
+
+import gitlet.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static gitlet.utils.Constants.IGNORE_FILE;
+
+/**
+ * @className: IgnoreRules
+ * @description: The patterns of the .gitletignore file of the working directory, one per line, naming the
+ * untracked files that status and the untracked checks leave out. A pattern holding a '/' other than a trailing
+ * one is matched against the whole path, any other against the name of each file and directory; a trailing
+ * '/' only matches directories, and everything below an ignored directory is ignored. Blank lines and lines
+ * starting with '#' are skipped.
+ * <p>
+ * The patterns are compiled once: literal names go into hash sets, patterns of the form '*suffix' into a trie
+ * of reversed suffixes, and only the remaining globs into regular expressions, merged into one per kind.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class IgnoreRules {
+    public static final IgnoreRules NONE = new IgnoreRules(new ArrayList<>());
+    private static final char SEPARATOR = '/';
+
+    private static IgnoreRules loaded;
+
+    private final boolean empty;
+    private final Set<String> names = new HashSet<>();
+    private final Set<String> directoryNames = new HashSet<>();
+    private final Set<String> paths = new HashSet<>();
+    private final Set<String> directoryPaths = new HashSet<>();
+    private final SuffixTrie suffixes = new SuffixTrie();
+    private final Pattern nameGlobs;
+    private final Pattern directoryNameGlobs;
+    private final Pattern pathGlobs;
+    private final Pattern directoryPathGlobs;
+
+    private IgnoreRules(List<String> lines) {
+        List<String> nameRegexes = new ArrayList<>();
+        List<String> directoryNameRegexes = new ArrayList<>();
+        List<String> pathRegexes = new ArrayList<>();
+        List<String> directoryPathRegexes = new ArrayList<>();
+        boolean any = false;
+
+        for (String line : lines) {
+            String pattern = line.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                continue;
+            }
+            any = true;
+
+            boolean directoryOnly = pattern.endsWith("/");
+            while (pattern.endsWith("/")) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean anchored = pattern.indexOf(SEPARATOR) >= 0;
+            while (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            boolean hasWildcard = pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+            if (!hasWildcard) {
+                if (anchored) {
+                    (directoryOnly ? directoryPaths : paths).add(pattern);
+                } else {
+                    (directoryOnly ? directoryNames : names).add(pattern);
+                }
+            } else if (!anchored && pattern.startsWith("*") && pattern.indexOf('*', 1) < 0
+                && pattern.indexOf('?') < 0) {
+                suffixes.add(pattern.substring(1), directoryOnly);
+            } else if (anchored) {
+                (directoryOnly ? directoryPathRegexes : pathRegexes).add(globToRegex(pattern));
+            } else {
+                (directoryOnly ? directoryNameRegexes : nameRegexes).add(globToRegex(pattern));
+            }
+        }
+
+        this.empty = !any;
+        this.nameGlobs = join(nameRegexes);
+        this.directoryNameGlobs = join(directoryNameRegexes);
+        this.pathGlobs = join(pathRegexes);
+        this.directoryPathGlobs = join(directoryPathRegexes);
+    }
+
+    /**
+     * @return the rules of the .gitletignore file of the working directory, read once
+     */
+    public static IgnoreRules load() {
+        if (loaded == null) {
+            loaded = read();
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the rules of the .gitletignore file as it is now
+     */
+    public static IgnoreRules read() {
+        if (!IGNORE_FILE.isFile()) {
+            return NONE;
+        }
+        return new IgnoreRules(List.of(Utils.readContentsAsString(IGNORE_FILE).split("\r?\n")));
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @param path      the path of an entry of the working tree whose directories are not ignored
+     * @param name      the last component of PATH
+     * @param directory whether the entry is a directory
+     * @return whether the entry is ignored by itself
+     */
+    public boolean isIgnored(String path, String name, boolean directory) {
+        if (empty) {
+            return false;
+        }
+        if (names.contains(name) || paths.contains(path) || suffixes.matches(name, directory)
+            || matches(nameGlobs, name) || matches(pathGlobs, path)) {
+            return true;
+        }
+        return directory && (directoryNames.contains(name) || directoryPaths.contains(path)
+            || matches(directoryNameGlobs, name) || matches(directoryPathGlobs, path));
+    }
+
+    /**
+     * @return whether the file PATH is ignored, by itself or through one of its directories
+     */
+    public boolean isIgnored(String path) {
+        if (empty) {
+            return false;
+        }
+        int start = 0;
+        for (int slash = path.indexOf(SEPARATOR); slash >= 0; slash = path.indexOf(SEPARATOR, start)) {
+            if (isIgnored(path.substring(0, slash), path.substring(start, slash), true)) {
+                return true;
+            }
+            start = slash + 1;
+        }
+        return isIgnored(path, path.substring(start), false);
+    }
+
+    private static boolean matches(Pattern glob, String value) {
+        return glob != null && glob.matcher(value).matches();
+    }
+
+    private static Pattern join(List<String> regexes) {
+        return regexes.isEmpty() ? null : Pattern.compile(String.join("|", regexes));
+    }
+
+    private static String globToRegex(String glob) {
+        return "(?:" + Globs.toRegex(glob) + ")";
+    }
+
+    /**
+     * The suffixes of the '*suffix' patterns, stored backward so that a name is matched by reading it
+     * from its last character, stopping as soon as no suffix continues.
+     */
+    private static class SuffixTrie {
+        private final Node root = new Node();
+
+        void add(String suffix, boolean directoryOnly) {
+            Node node = root;
+            for (int i = suffix.length() - 1; i >= 0; i--) {
+                node = node.children.computeIfAbsent(suffix.charAt(i), c -> new Node());
+            }
+            if (directoryOnly) {
+                node.directoryEnd = true;
+            } else {
+                node.end = true;
+            }
+        }
+
+        boolean matches(String name, boolean directory) {
+            Node node = root;
+            for (int i = name.length(); node != null; i--) {
+                if (node.end || directory && node.directoryEnd) {
+                    return true;
+                }
+                if (i == 0) {
+                    return false;
+                }
+                node = node.children.get(name.charAt(i - 1));
+            }
+            return false;
+        }
+
+        private static class Node {
+            private final Map<Character, Node> children = new HashMap<>(4);
+            private boolean end;
+            private boolean directoryEnd;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package gitlet.worktree;
+
+import gitlet.utils.Config;
+import gitlet.utils.GitletException;
+import gitlet.utils.ObjectId;
+import gitlet.utils.RepositoryHelper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @className: ParallelCheckout
+ * @description: Writes the files of a checkout from a fixed pool of checkout.workers threads, each one reading
+ * its blob out of the object store and writing it to the working tree. Files are written independently of
+ * each other; the first failure stops the workers from starting new files and is reported once the ones
+ * already being written are done, so no file is left half written by a worker still running.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class ParallelCheckout {
+    /**
+     * Write every file of FILES to the working tree.
+     *
+     * @param files the blob hash of each file to write, by path
+     * @return the stat data of each file once written, by path
+     */
+    public static Map<String, FileStat> write(Map<String, ObjectId> files) {
+        int workers = Math.max(1, Math.min(Config.getInt(Config.CHECKOUT_WORKERS), files.size()));
+        Map<String, FileStat> written = new HashMap<>(files.size() * 4 / 3 + 1);
+        if (workers == 1) {
+            files.forEach((path, blobHash) -> written.put(path, writeFile(path, blobHash)));
+            return written;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "checkout-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Map.Entry<String, FileStat>> completions = new ExecutorCompletionService<>(pool);
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            files.forEach((path, blobHash) -> completions.submit(() -> {
+                if (failed.get()) {
+                    return null;
+                }
+                return Map.entry(path, writeFile(path, blobHash));
+            }));
+
+            GitletException failure = null;
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    Map.Entry<String, FileStat> file = completions.take().get();
+                    if (file != null) {
+                        written.put(file.getKey(), file.getValue());
+                    }
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    if (failure == null) {
+                        failure = e.getCause() instanceof GitletException ? (GitletException) e.getCause()
+                            : new GitletException("Checkout failed: " + e.getCause().getMessage());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitletException("Checkout interrupted.");
+        } finally {
+            pool.shutdownNow();
+            awaitTermination(pool);
+        }
+    }
+
+    private static FileStat writeFile(String path, ObjectId blobHash) {
+        RepositoryHelper.restoreBlob(blobHash.toHex(), WorkingTree.prepareFile(path));
+        return FileStat.of(WorkingTree.file(path));
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
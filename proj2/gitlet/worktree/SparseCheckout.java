@@ -0,0 +1,125 @@
+package gitlet.worktree;
+
+import gitlet.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static gitlet.utils.Constants.SPARSE_CHECKOUT_FILE;
+
+/**
+ * @className: SparseCheckout
+ * @description: The include patterns of a sparse checkout, kept one per line in .gitlet/sparse-checkout.
+ * Checkout, reset and merge only write the files they include, and status ignores the others. A pattern
+ * without wildcards names a file or a directory with everything below it; in a pattern with wildcards,
+ * '*' and '?' stay within one directory and '**' crosses directories. Without the file every path is included.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class SparseCheckout {
+    private static final char SEPARATOR = '/';
+
+    private static List<String> patterns;
+    private static Set<String> literals;
+    private static List<Pattern> globs;
+
+    public static boolean isEnabled() {
+        return !load().isEmpty();
+    }
+
+    public static List<String> getPatterns() {
+        return load();
+    }
+
+    /**
+     * @return whether the file PATH is written to the working tree, that is whether it or one of its
+     * directories is named by a literal pattern, or it matches a pattern with wildcards
+     */
+    public static boolean includes(String path) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        for (int slash = path.indexOf(SEPARATOR); slash >= 0; slash = path.indexOf(SEPARATOR, slash + 1)) {
+            if (literals.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return literals.contains(path) || globs.stream().anyMatch(glob -> glob.matcher(path).matches());
+    }
+
+    /**
+     * Replace the include patterns with PATTERNS.
+     */
+    public static void set(List<String> newPatterns) {
+        List<String> normalized = newPatterns.stream()
+            .map(SparseCheckout::normalize)
+            .filter(pattern -> !pattern.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+        Utils.writeContents(SPARSE_CHECKOUT_FILE, normalized.stream().map(pattern -> pattern + "\n")
+            .collect(Collectors.joining()));
+        compile(normalized);
+    }
+
+    /**
+     * Include every path again.
+     */
+    public static void disable() {
+        SPARSE_CHECKOUT_FILE.delete();
+        compile(new ArrayList<>());
+    }
+
+    private static String normalize(String pattern) {
+        String normalized = pattern.trim().replace('\\', SEPARATOR);
+        while (normalized.startsWith("./")) {
+            normalized = normalized.substring(2);
+        }
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    private static List<String> load() {
+        if (patterns == null) {
+            List<String> lines = new ArrayList<>();
+            if (SPARSE_CHECKOUT_FILE.isFile()) {
+                Arrays.stream(Utils.readContentsAsString(SPARSE_CHECKOUT_FILE).split("\n"))
+                    .map(SparseCheckout::normalize)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .forEach(lines::add);
+            }
+            compile(lines);
+        }
+        return patterns;
+    }
+
+    private static void compile(List<String> lines) {
+        patterns = lines;
+        literals = new HashSet<>();
+        globs = new ArrayList<>();
+        for (String pattern : lines) {
+            if (pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0) {
+                literals.add(pattern);
+            } else {
+                globs.add(Pattern.compile(globToRegex(pattern)));
+            }
+        }
+    }
+
+    /**
+     * @return a regular expression matching the paths GLOB names, and the paths below them
+     */
+    private static String globToRegex(String glob) {
+        return Globs.toRegex(glob) + "(/.*)?";
+    }
+}
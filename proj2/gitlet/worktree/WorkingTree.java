@@ -0,0 +1,202 @@
+package gitlet.worktree;
+
+import gitlet.models.Head;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static gitlet.utils.Constants.CWD;
+import static gitlet.utils.Constants.GITLET_DIR;
+
+/**
+ * @className: WorkingTree
+ * @description: The files of the working directory, nested directories included. Files are named by their
+ * path relative to the working directory with '/' between directories, the same names the trees of the
+ * commits use. The .gitlet directory is never part of the working tree.
+ * @author: Wenjie FU
+ * @date: 18/10/2026
+ **/
+public class WorkingTree {
+    private static final char SEPARATOR = '/';
+
+    /**
+     * Walk the working directory, one fork-join task per directory so that sibling directories are
+     * listed in parallel. Directories ignored by .gitletignore are not entered.
+     *
+     * @return the path of every file not ignored, possibly with some special files among them
+     */
+    public static Set<String> walk() {
+        Set<String> files = ConcurrentHashMap.newKeySet();
+        ForkJoinPool.commonPool().invoke(new DirectoryWalk(CWD, "", IgnoreRules.load(), files));
+        return files;
+    }
+
+    /**
+     * @return whether PATH names a regular file of the working tree
+     */
+    public static boolean isFile(String path) {
+        return !path.isEmpty() && isInWorkingTree(path) && file(path).isFile();
+    }
+
+    /**
+     * @return whether PATH names a directory of the working tree, the empty path for the working directory itself
+     */
+    public static boolean isDirectory(String path) {
+        return path.isEmpty() || isInWorkingTree(path) && file(path).isDirectory();
+    }
+
+    public static File file(String path) {
+        return new File(CWD, path);
+    }
+
+    /**
+     * @return PATH, given relative to the working directory, in the form used by the commits:
+     * normalized, with '/' separators; or PATH unchanged when it is outside the working tree
+     */
+    public static String normalize(String path) {
+        Path root = CWD.toPath().toAbsolutePath().normalize();
+        Path resolved = root.resolve(path).normalize();
+        if (!resolved.startsWith(root)) {
+            return path;
+        }
+        return root.relativize(resolved).toString().replace(File.separatorChar, SEPARATOR);
+    }
+
+    /**
+     * @return the file at PATH, after creating the directories it is to be written in
+     */
+    public static File prepareFile(String path) {
+        File file = file(path);
+        File parent = file.getParentFile();
+        if (!parent.isDirectory()) {
+            deleteBlockingFile(path.substring(0, path.lastIndexOf(SEPARATOR)));
+            parent.mkdirs();
+        }
+        return file;
+    }
+
+    /**
+     * Delete the file at PATH, then the directories it leaves empty.
+     */
+    public static void delete(String path) {
+        if (!isInWorkingTree(path)) {
+            return;
+        }
+        File file = file(path);
+        if (file.isDirectory()) {
+            return;
+        }
+        file.delete();
+        for (File parent = file.getParentFile(); !parent.equals(CWD); parent = parent.getParentFile()) {
+            String[] children = parent.list();
+            if (children == null || children.length > 0 || !parent.delete()) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isInWorkingTree(String path) {
+        int slash = path.indexOf(SEPARATOR);
+        String first = slash < 0 ? path : path.substring(0, slash);
+        return !first.equals(GITLET_DIR.getName()) && !first.equals("..");
+    }
+
+    /**
+     * A file in the way of a directory that has to be created, such as a tracked file replaced
+     * by a directory of the same name in another commit. Only a file tracked by the head commit is deleted,
+     * the commands check beforehand that no other file is in the way.
+     */
+    private static void deleteBlockingFile(String directory) {
+        for (int slash = directory.length(); slash > 0; slash = directory.lastIndexOf(SEPARATOR, slash - 1)) {
+            String path = directory.substring(0, slash);
+            if (file(path).isFile()) {
+                if (Head.contains(path)) {
+                    file(path).delete();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lists one directory, recording its files and forking a walk for each subdirectory.
+     * The link count of a directory is two plus its number of subdirectories, so once that many
+     * subdirectories were met the remaining entries are taken as files without a stat; in a directory
+     * without subdirectories, the common case, no entry is stat-ed at all. Entries are stat-ed one by one
+     * when the file system does not report link counts that way. An entry taken without a stat may be a
+     * symbolic link or a FIFO, the untracked files and the files added through a directory are checked again.
+     */
+    private static class DirectoryWalk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File directory;
+        private final String prefix;
+        private final IgnoreRules ignoreRules;
+        private final Set<String> files;
+
+        DirectoryWalk(File directory, String prefix, IgnoreRules ignoreRules, Set<String> files) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.ignoreRules = ignoreRules;
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            String[] names = directory.list();
+            if (names == null) {
+                return;
+            }
+
+            List<DirectoryWalk> subdirectories = new ArrayList<>();
+            int subdirectoriesLeft = countSubdirectories(directory);
+            for (String name : names) {
+                if (subdirectoriesLeft == 0) {
+                    addFile(name);
+                    continue;
+                }
+
+                Path entry = new File(directory, name).toPath();
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    subdirectoriesLeft--;
+                    if ((!prefix.isEmpty() || !name.equals(GITLET_DIR.getName()))
+                        && !ignoreRules.isIgnored(prefix + name, name, true)) {
+                        subdirectories.add(new DirectoryWalk(entry.toFile(), prefix + name + SEPARATOR,
+                            ignoreRules, files));
+                    }
+                } else if (Files.isRegularFile(entry)) {
+                    addFile(name);
+                }
+            }
+            invokeAll(subdirectories);
+        }
+
+        private void addFile(String name) {
+            String path = prefix + name;
+            if (!ignoreRules.isIgnored(path, name, false)) {
+                files.add(path);
+            }
+        }
+
+        /**
+         * @return the number of subdirectories of DIRECTORY from its link count, or -1 if it is not known
+         */
+        private static int countSubdirectories(File directory) {
+            try {
+                int links = (Integer) Files.getAttribute(directory.toPath(), "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+                return links >= 2 ? links - 2 : -1;
+            } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                return -1;
+            }
+        }
+    }
+}